@@ -0,0 +1,61 @@
+package bguspl.set;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A build time tool that packs all the card images of a directory (and the empty slot image) into a single sprite
+ * atlas image, plus an index of the rectangle each image occupies in the atlas (see CardImages).
+ * The atlas is not generated by the build: atlas.png and atlas.index are checked in next to the card images, and
+ * have to be regenerated (by running this tool from the repository root) whenever a card image is added or changed.
+ * An atlas that misses one of the cards is ignored, and the separate card images are loaded instead.
+ * Usage: CardAtlasPacker [cards directory] (defaults to src/main/resources/cards).
+ */
+public class CardAtlasPacker {
+
+    static final String ATLAS_IMAGE = "atlas.png";
+    static final String ATLAS_INDEX = "atlas.index";
+
+    public static void main(String[] args) throws IOException {
+
+        File directory = new File(args.length > 0 ? args[0] : "src/main/resources/cards");
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".png") && !name.equals(ATLAS_IMAGE));
+        if (files == null || files.length == 0)
+            throw new IOException("no card images found in " + directory);
+        Arrays.sort(files);
+
+        BufferedImage[] images = new BufferedImage[files.length];
+        int cellWidth = 0, cellHeight = 0;
+        for (int i = 0; i < files.length; i++) {
+            images[i] = ImageIO.read(files[i]);
+            cellWidth = Math.max(cellWidth, images[i].getWidth());
+            cellHeight = Math.max(cellHeight, images[i].getHeight());
+        }
+
+        // a roughly square grid of cells
+        int columns = (int) Math.ceil(Math.sqrt(files.length * (double) cellHeight / cellWidth));
+        int rows = (files.length + columns - 1) / columns;
+        BufferedImage atlas = new BufferedImage(columns * cellWidth, rows * cellHeight, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = atlas.createGraphics();
+        try (PrintWriter index = new PrintWriter(new File(directory, ATLAS_INDEX), StandardCharsets.UTF_8.name())) {
+            index.println("# card image name, x, y, width, height (in " + ATLAS_IMAGE + ")");
+            for (int i = 0; i < files.length; i++) {
+                int x = (i % columns) * cellWidth;
+                int y = (i / columns) * cellHeight;
+                g.drawImage(images[i], x, y, null);
+                String name = files[i].getName().substring(0, files[i].getName().length() - ".png".length());
+                index.println(name + " " + x + " " + y + " " + images[i].getWidth() + " " + images[i].getHeight());
+            }
+        } finally {
+            g.dispose();
+        }
+        ImageIO.write(atlas, "png", new File(directory, ATLAS_IMAGE));
+        System.out.println("packed " + files.length + " card images into " + new File(directory, ATLAS_IMAGE));
+    }
+}
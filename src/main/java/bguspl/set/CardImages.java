@@ -0,0 +1,305 @@
+package bguspl.set;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+
+import static bguspl.set.UserInterfaceSwing.intInBaseToPaddedString;
+
+/**
+ * A bounded (least recently used) cache of the card images.
+ * Each image is decoded once, converted to a display compatible format and pre-scaled to the cell size, so painting
+ * a card is a plain blit. The cache is filled in the background at startup, and a card missing from it is loaded on
+ * its first placement.
+ * When the resources include a sprite atlas (see CardAtlasPacker) the cache is filled by decoding the atlas once and
+ * slicing it; otherwise the separate card images are decoded in parallel.
+ * Decks that have no card images in the resources (or any deck, with ProceduralCards) are drawn on demand by a
+ * CardRenderer instead, so even huge decks take no more memory than the cache size.
+ */
+class CardImages {
+
+    /**
+     * The name of the empty slot image, among the card images.
+     */
+    private static final String EMPTY_CARD = "empty_card";
+
+    private final Logger logger;
+    private final Config config;
+    private final Util util;
+    private final GraphicsConfiguration graphicsConfiguration;
+
+    /**
+     * The image of an empty slot, completed in the background when it is sliced from the atlas.
+     */
+    private final CompletableFuture<Image> emptyCard;
+
+    /**
+     * The cached card images, in access order. Guarded by itself.
+     */
+    private final Map<Integer, Image> cache;
+
+    /**
+     * The background loads of the first cards of the deck (an entry is dropped once its card was requested).
+     */
+    private final List<CompletableFuture<Image>> prefetched;
+
+    /**
+     * The rectangle of each card image in the sprite atlas, by card image name (null if there is no usable atlas).
+     */
+    private final Map<String, Rectangle> atlasIndex;
+
+    /**
+     * Draws the card images when they are not taken from the resources (null if they are).
+     */
+    private final CardRenderer renderer;
+
+    CardImages(Logger logger, Config config, Util util) {
+        this.logger = logger;
+        this.config = config;
+        this.util = util;
+        this.graphicsConfiguration = GraphicsEnvironment.isHeadless() ? null
+                : GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+
+        int capacity = Math.max(1, config.cardImageCacheSize);
+        cache = new LinkedHashMap<Integer, Image>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Image> eldest) {
+                return size() > capacity;
+            }
+        };
+        if (config.proceduralCards || !cardResourcesAvailable()) {
+            logger.info("drawing the card images procedurally");
+            renderer = new CardRenderer(config);
+            emptyCard = CompletableFuture.completedFuture(toCellImage(renderer.renderEmpty()));
+            atlasIndex = null;
+            prefetched = prefetch(0);
+        }
+        else {
+            renderer = null;
+            int count = Math.min(capacity, config.deckSize);
+            atlasIndex = loadAtlasIndex(count);
+            emptyCard = atlasIndex != null && atlasIndex.containsKey(EMPTY_CARD) ? new CompletableFuture<>()
+                    : CompletableFuture.completedFuture(load("cards/" + EMPTY_CARD + ".png"));
+            prefetched = prefetch(count);
+        }
+    }
+
+    /**
+     * @return - true iff the resources have an image for each card in the deck.
+     */
+    private boolean cardResourcesAvailable() {
+        // file names are the card features in base featureSize, so it has to be a single digit
+        return config.featureSize < 10
+                && getClass().getClassLoader().getResource(cardResource(config.deckSize - 1)) != null;
+    }
+
+    /**
+     * Reads the sprite atlas index.
+     *
+     * @param count - the number of cards that must be in the atlas.
+     * @return      - the rectangle of each card image in the atlas, or null if there is no atlas covering the cards.
+     */
+    private Map<String, Rectangle> loadAtlasIndex(int count) {
+        InputStream stream = getClass().getClassLoader().getResourceAsStream("cards/" + CardAtlasPacker.ATLAS_INDEX);
+        if (stream == null)
+            return null;
+        Map<String, Rectangle> index = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (line.isEmpty() || line.startsWith("#"))
+                    continue;
+                String[] fields = line.trim().split("\\s+");
+                index.put(fields[0], new Rectangle(Integer.parseInt(fields[1]), Integer.parseInt(fields[2]),
+                        Integer.parseInt(fields[3]), Integer.parseInt(fields[4])));
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.severe("cannot read the card atlas index: " + e);
+            return null;
+        }
+        for (int card = 0; card < count; card++)
+            if (!index.containsKey(cardName(card)))
+                return null;
+        return index;
+    }
+
+    /**
+     * Decodes the first cards of the deck in the background: from the atlas if there is one, otherwise from the
+     * separate card images, in parallel.
+     *
+     * @param count - the number of cards to decode.
+     * @return      - the loads of the cards.
+     */
+    private List<CompletableFuture<Image>> prefetch(int count) {
+        long start = System.nanoTime();
+        ExecutorService loaders = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "card-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<CompletableFuture<Image>> loads = new ArrayList<>(count);
+        if (atlasIndex != null) {
+            for (int i = 0; i < count; i++)
+                loads.add(new CompletableFuture<>());
+            loaders.execute(() -> sliceAtlas(loads));
+        }
+        else for (int i = 0; i < count; i++) {
+            int card = i;
+            loads.add(CompletableFuture.supplyAsync(() -> {
+                Image image = load(cardResource(card));
+                synchronized (cache) {
+                    cache.putIfAbsent(card, image);
+                }
+                return image;
+            }, loaders));
+        }
+        CompletableFuture.allOf(loads.toArray(new CompletableFuture<?>[0])).whenComplete((ignored, error) -> {
+            if (error != null)
+                logger.severe("error loading card images: " + error);
+            else
+                logger.info("loaded " + count + " card images" + (atlasIndex != null ? " from the atlas" : "") + " in "
+                        + (System.nanoTime() - start) / 1_000_000 + "ms");
+        });
+        loaders.shutdown();
+        return loads;
+    }
+
+    /**
+     * Decodes the atlas once and completes the given loads (and the empty slot image) with the images sliced from it.
+     * If the atlas cannot be decoded, the images are loaded from the separate image files instead.
+     *
+     * @param loads - the loads of the first cards of the deck.
+     */
+    private void sliceAtlas(List<CompletableFuture<Image>> loads) {
+        BufferedImage atlas = null;
+        try {
+            URL atlasResource = getClass().getClassLoader().getResource("cards/" + CardAtlasPacker.ATLAS_IMAGE);
+            if (atlasResource != null)
+                atlas = ImageIO.read(atlasResource);
+        } catch (IOException e) {
+            logger.severe("cannot read the card atlas: " + e);
+        }
+        if (!emptyCard.isDone()) {
+            try {
+                emptyCard.complete(atlas != null ? slice(atlas, EMPTY_CARD) : load("cards/" + EMPTY_CARD + ".png"));
+            } catch (RuntimeException e) {
+                emptyCard.completeExceptionally(e);
+            }
+        }
+        for (int card = 0; card < loads.size(); card++) {
+            try {
+                Image image;
+                if (atlas != null)
+                    image = slice(atlas, cardName(card));
+                else image = load(cardResource(card));
+                synchronized (cache) {
+                    cache.putIfAbsent(card, image);
+                }
+                loads.get(card).complete(image);
+            } catch (RuntimeException e) {
+                loads.get(card).completeExceptionally(e);
+            }
+        }
+    }
+
+    private Image slice(BufferedImage atlas, String name) {
+        Rectangle r = atlasIndex.get(name);
+        return toCellImage(atlas.getSubimage(r.x, r.y, r.width, r.height));
+    }
+
+    private String cardName(int card) {
+        return intInBaseToPaddedString(card, config.featureCount, config.featureSize);
+    }
+
+    private String cardResource(int card) {
+        return "cards/" + cardName(card) + ".png";
+    }
+
+    /**
+     * Called from the event dispatch thread only.
+     *
+     * @param card - the card id.
+     * @return     - the (pre-scaled) image of the card.
+     */
+    Image card(int card) {
+        Image image;
+        synchronized (cache) {
+            image = cache.get(card);
+        }
+        if (image == null) {
+            if (card < prefetched.size() && prefetched.get(card) != null)
+                image = prefetched.get(card).join(); // still loading in the background
+            else if (renderer != null)
+                image = toCellImage(renderer.render(util.cardToFeatures(card)));
+            else
+                image = load(cardResource(card));
+            synchronized (cache) {
+                cache.put(card, image);
+            }
+        }
+        if (card < prefetched.size())
+            prefetched.set(card, null); // from now on an evicted image is reloaded on demand
+        return image;
+    }
+
+    /**
+     * @return - the (pre-scaled) image of an empty slot.
+     */
+    Image emptyCard() {
+        return emptyCard.join(); // still being sliced from the atlas in the background
+    }
+
+    /**
+     * Decodes an image resource and converts it to a display compatible image of the cell size.
+     *
+     * @param filename - the resource name.
+     * @return         - the converted image.
+     */
+    private Image load(String filename) {
+        URL imageResource = getClass().getClassLoader().getResource(filename);
+        if (imageResource == null)
+            throw new RuntimeException(new FileNotFoundException(filename));
+        try {
+            return toCellImage(ImageIO.read(imageResource));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Converts an image to a display compatible image of the cell size.
+     *
+     * @param source - the source image.
+     * @return       - the converted image.
+     */
+    Image toCellImage(BufferedImage source) {
+        int transparency = source.getColorModel().getTransparency();
+        BufferedImage image = graphicsConfiguration != null
+                ? graphicsConfiguration.createCompatibleImage(config.cellWidth, config.cellHeight, transparency)
+                : new BufferedImage(config.cellWidth, config.cellHeight, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(source, 0, 0, config.cellWidth, config.cellHeight, null);
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+}
@@ -0,0 +1,134 @@
+package bguspl.set;
+
+import java.awt.*;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Draws card images from their feature vectors (see Util::cardToFeatures), for any FeatureSize and FeatureCount.
+ * The first four features are drawn as the number of shapes, their color, their kind and their shading (as on the
+ * original cards); any further features are printed as digits at the bottom of the card.
+ */
+class CardRenderer {
+
+    private static final int NUMBER = 0;
+    private static final int COLOR = 1;
+    private static final int SHAPE = 2;
+    private static final int SHADING = 3;
+
+    private static final int MAX_SHAPES_PER_ROW = 6;
+
+    private final Config config;
+    private final Font extraFeaturesFont;
+
+    CardRenderer(Config config) {
+        this.config = config;
+        this.extraFeaturesFont = new Font("SansSerif", Font.BOLD, Math.max(8, config.cellHeight / 10));
+    }
+
+    /**
+     * @return - the image of an empty slot.
+     */
+    BufferedImage renderEmpty() {
+        BufferedImage image = new BufferedImage(config.cellWidth, config.cellHeight, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setColor(Color.LIGHT_GRAY);
+            g.drawRoundRect(4, 4, config.cellWidth - 9, config.cellHeight - 9, 16, 16);
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    /**
+     * @param features - the feature vector of the card.
+     * @return         - the image of the card.
+     */
+    BufferedImage render(int[] features) {
+        int size = Math.max(2, config.featureSize);
+        int width = config.cellWidth;
+        int height = config.cellHeight;
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+            // the card itself
+            g.setColor(Color.WHITE);
+            g.fillRoundRect(4, 4, width - 9, height - 9, 16, 16);
+            g.setColor(Color.GRAY);
+            g.drawRoundRect(4, 4, width - 9, height - 9, 16, 16);
+
+            int count = feature(features, NUMBER) + 1;
+            Color color = Color.getHSBColor((float) feature(features, COLOR) / size, 0.85f, 0.75f);
+            int kind = feature(features, SHAPE);
+            // full, partial (translucent) or empty shading
+            float fill = 1f - (float) feature(features, SHADING) / (size - 1);
+
+            // lay the shapes out side by side (in rows of up to MAX_SHAPES_PER_ROW), sized so that featureSize
+            // shapes fit on the card
+            int extraRows = features.length > 4 ? 1 : 0;
+            int perRow = Math.min(size, MAX_SHAPES_PER_ROW);
+            int rows = (size + perRow - 1) / perRow;
+            int slotWidth = (width - 16) / perRow;
+            int slotHeight = (height - 24 - extraRows * height / 5) / rows;
+            int shapeWidth = Math.max(4, slotWidth * 4 / 5);
+            int shapeHeight = Math.max(4, Math.min(slotHeight * 9 / 10, shapeWidth * 2));
+            int top = 12 + (height - 24 - extraRows * height / 5 - ((count + perRow - 1) / perRow) * slotHeight) / 2;
+            g.setStroke(new BasicStroke(Math.max(1.5f, shapeWidth / 16f)));
+            for (int i = 0; i < count; i++) {
+                int inRow = Math.min(perRow, count - i / perRow * perRow);
+                int left = (width - inRow * slotWidth) / 2 + (slotWidth - shapeWidth) / 2;
+                int x = left + (i % perRow) * slotWidth;
+                int y = top + (i / perRow) * slotHeight + (slotHeight - shapeHeight) / 2;
+                Shape shape = shape(kind, x, y, shapeWidth, shapeHeight);
+                if (fill > 0) {
+                    g.setColor(new Color(color.getRed(), color.getGreen(), color.getBlue(), Math.round(fill * 255)));
+                    g.fill(shape);
+                }
+                g.setColor(color);
+                g.draw(shape);
+            }
+
+            // any features beyond the first four
+            if (extraRows > 0) {
+                StringBuilder text = new StringBuilder();
+                for (int i = 4; i < features.length; i++)
+                    text.append(i > 4 ? " " : "").append(features[i]);
+                g.setFont(extraFeaturesFont);
+                g.setColor(Color.DARK_GRAY);
+                FontMetrics metrics = g.getFontMetrics();
+                g.drawString(text.toString(), (width - metrics.stringWidth(text.toString())) / 2, height - 10 - metrics.getDescent());
+            }
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    private static int feature(int[] features, int feature) {
+        return feature < features.length ? features[feature] : 0;
+    }
+
+    /**
+     * @return - an ellipse for kind 0, and a regular polygon with kind + 2 sides otherwise.
+     */
+    private static Shape shape(int kind, int x, int y, int width, int height) {
+        if (kind == 0)
+            return new Ellipse2D.Double(x, y, width, height);
+        int sides = kind + 2;
+        Path2D.Double polygon = new Path2D.Double();
+        for (int i = 0; i < sides; i++) {
+            double angle = -Math.PI / 2 + 2 * Math.PI * i / sides;
+            double px = x + width / 2.0 + Math.cos(angle) * width / 2.0;
+            double py = y + height / 2.0 + Math.sin(angle) * height / 2.0;
+            if (i == 0) polygon.moveTo(px, py);
+            else polygon.lineTo(px, py);
+        }
+        polygon.closePath();
+        return polygon;
+    }
+}
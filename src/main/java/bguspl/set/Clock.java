@@ -0,0 +1,37 @@
+package bguspl.set;
+
+/**
+ * The time source of the game's timeouts: the turn countdown, the freezes and the table delay. The game reads the
+ * time and waits through Env::clock only, so tests can run it on a VirtualClock instead of the system clock.
+ * Latency measurements (e.g. GameMetrics, InputTrace) keep using System::nanoTime, since they measure real time.
+ */
+public interface Clock {
+
+    /**
+     * The system clock.
+     */
+    Clock SYSTEM = new SystemClock();
+
+    /**
+     * @return - the current time in milliseconds (for the system clock, System::currentTimeMillis).
+     */
+    long millis();
+
+    /**
+     * Sleeps for the given time.
+     *
+     * @param millis - the time to sleep (nothing happens if not positive).
+     * @throws InterruptedException - if interrupted while sleeping.
+     */
+    void sleep(long millis) throws InterruptedException;
+
+    /**
+     * Waits on a monitor the current thread holds, like Object::wait. As with Object::wait, it may return before
+     * the time is up, so the caller should check its condition again.
+     *
+     * @param monitor - the monitor.
+     * @param millis  - the maximum time to wait (0 to wait until notified).
+     * @throws InterruptedException - if interrupted while waiting.
+     */
+    void await(Object monitor, long millis) throws InterruptedException;
+}
@@ -21,6 +21,21 @@ public class Config {
     public final long randomSpinMin;
     public final long randomSpinMax;
 
+    /**
+     * The number of game events the event log buffers before it drops events (0 disables the event log)
+     */
+    public final int eventLogCapacity;
+
+    /**
+     * The time between the periodic reports of the game threads' CPU time and allocations (0 for end of game only)
+     */
+    public final long threadReportMillis;
+
+    /**
+     * Whether to profile the contention on the game's locks (see LockProfiler)
+     */
+    public final boolean lockProfiling;
+
     /**
      * The number of features on the cards (e.g. shape, color etc.)
      */
@@ -52,39 +67,125 @@ public class Config {
     public final int players;
 
     /**
-     * Whether to print out hints to the console or not
+     * The number of milliseconds to pause at the end of the game before closing
      */
-    public final boolean hints;
+    public final long endGamePauseMillies;
 
     /**
-     * The number of milliseconds until the dealer reshuffles the deck (0 show timer since last action, -1 show nothing)
+     * The maximum number of claims a player may have queued or under verification at once
      */
-    public final long turnTimeoutMillis;
+    public final int maxClaimsInFlight;
 
     /**
-     * The number of milliseconds the turn countdown warning should be displayed
+     * The maximum number of claims per second each player may submit (0 for no limit)
      */
-    public final long turnTimeoutWarningMillis;
+    public final double claimsPerSecond;
 
     /**
-     * The number of milliseconds a player gets frozen for when he scores a point
+     * The number of milliseconds a claim is held back so that conflicting claims completed by an earlier key press
+     * can overtake it
      */
-    public final long penaltyFreezeMillis;
+    public final long claimArbitrationMillis;
 
     /**
-     * The number of milliseconds a player gets frozen for when penalized
+     * The seed of the game's random choices: the deck shuffles and the computer players' key presses (a new seed
+     * every game if not configured)
      */
-    public final long pointFreezeMillis;
+    public final long seed;
 
     /**
-     * The number of milliseconds to delay before removing/placing a card on the table
+     * Whether the seed was configured (i.e. the game should be repeatable)
      */
-    public final long tableDelayMillis;
+    public final boolean seeded;
 
     /**
-     * The number of milliseconds to pause at the end of the game before closing
+     * Whether to reload the settings of timing() when the configuration file changes (see ConfigWatcher)
      */
-    public final long endGamePauseMillies;
+    public final boolean reloadConfig;
+
+    /**
+     * The current snapshot of the settings that may be reloaded while the game runs
+     */
+    private volatile Timing timing;
+
+    /**
+     * The settings that may be reloaded while the game runs (see ConfigWatcher): the timing of the game, the hints
+     * and the log level. A snapshot never changes. A reload swaps in a new snapshot with the next version, so a reader
+     * takes the current snapshot once and reads a consistent set of values from it, without locking.
+     */
+    public static final class Timing {
+
+        /**
+         * The number of reloads before this snapshot (0 for the configuration the game started with)
+         */
+        public final int version;
+
+        /**
+         * The number of milliseconds until the dealer reshuffles the deck (0 show timer since last action, -1 show nothing)
+         */
+        public final long turnTimeoutMillis;
+
+        /**
+         * The number of milliseconds the turn countdown warning should be displayed
+         */
+        public final long turnTimeoutWarningMillis;
+
+        /**
+         * The number of milliseconds a player gets frozen for when he scores a point
+         */
+        public final long pointFreezeMillis;
+
+        /**
+         * The number of milliseconds a player gets frozen for when penalized
+         */
+        public final long penaltyFreezeMillis;
+
+        /**
+         * The number of milliseconds to delay before removing/placing a card on the table
+         */
+        public final long tableDelayMillis;
+
+        /**
+         * Whether to print out hints to the console or not
+         */
+        public final boolean hints;
+
+        /**
+         * The level of the game's logger
+         */
+        public final Level logLevel;
+
+        Timing(int version, Properties properties) {
+            this.version = version;
+            turnTimeoutMillis = (long) (Double.parseDouble(properties.getProperty("TurnTimeoutSeconds", "60")) * 1000.0);
+            turnTimeoutWarningMillis = (long) (Double.parseDouble(properties.getProperty("TurnTimeoutWarningSeconds", "60")) * 1000.0);
+            pointFreezeMillis = (long) (Double.parseDouble(properties.getProperty("PointFreezeSeconds", "1")) * 1000.0);
+            penaltyFreezeMillis = (long) (Double.parseDouble(properties.getProperty("PenaltyFreezeSeconds", "3")) * 1000.0);
+            tableDelayMillis = (long) (Double.parseDouble(properties.getProperty("TableDelaySeconds", "0.1")) * 1000.0);
+            hints = Boolean.parseBoolean(properties.getProperty("Hints", "False"));
+            logLevel = Level.parse(properties.getProperty("LogLevel", "ALL"));
+        }
+
+        /**
+         * @param other - another snapshot.
+         * @return      - true iff the other snapshot has the same settings (whatever its version).
+         */
+        public boolean sameSettings(Timing other) {
+            return turnTimeoutMillis == other.turnTimeoutMillis && turnTimeoutWarningMillis == other.turnTimeoutWarningMillis
+                    && pointFreezeMillis == other.pointFreezeMillis && penaltyFreezeMillis == other.penaltyFreezeMillis
+                    && tableDelayMillis == other.tableDelayMillis && hints == other.hints && logLevel.equals(other.logLevel);
+        }
+
+        @Override
+        public String toString() {
+            return "version " + version + ": TurnTimeoutSeconds=" + turnTimeoutMillis / 1000.0
+                    + " TurnTimeoutWarningSeconds=" + turnTimeoutWarningMillis / 1000.0
+                    + " PointFreezeSeconds=" + pointFreezeMillis / 1000.0
+                    + " PenaltyFreezeSeconds=" + penaltyFreezeMillis / 1000.0
+                    + " TableDelaySeconds=" + tableDelayMillis / 1000.0
+                    + " Hints=" + hints + " LogLevel=" + logLevel;
+        }
+    }
 
     /**
      * The names of the players to display on the screen
@@ -132,6 +233,31 @@ public class Config {
      */
     public final int fontSize;
 
+    /**
+     * The number of times per second pending user interface updates are applied to the screen
+     */
+    public final int frameRate;
+
+    /**
+     * The maximum number of decoded card images kept in memory
+     */
+    public final int cardImageCacheSize;
+
+    /**
+     * The TCP port spectators connect to (0 for no spectators)
+     */
+    public final int spectatorPort;
+
+    /**
+     * The TCP port remote clients send key presses to (0 for no remote input)
+     */
+    public final int remoteInputPort;
+
+    /**
+     * Whether to draw the card images instead of loading them (decks with no card images are always drawn)
+     */
+    public final boolean proceduralCards;
+
     /**
      * The scancodes of the keyboard input data for each player
      * Notes:
@@ -182,16 +308,22 @@ public class Config {
 
     public Config(Logger logger, Properties properties) {
 
+        // the settings that may be reloaded while the game runs
+        timing = new Timing(0, properties);
+        reloadConfig = Boolean.parseBoolean(properties.getProperty("ReloadConfig", "True"));
+
         // logger settings
-        Level logLevel = Level.parse(properties.getProperty("LogLevel", "ALL"));
         String logFormat = properties.getProperty("LogFormat", "[%1$tT.%1$tL] [%2$-7s] %3$s%n");
-        Main.setLoggerLevelAndFormat(logger, logLevel, logFormat);
+        Main.setLoggerLevelAndFormat(logger, timing.logLevel, logFormat);
 
         // for debugging
         randomSpinMin = Long.parseLong(properties.getProperty("RandomSpinMin", "0"));
         randomSpinMax = Long.parseLong(properties.getProperty("RandomSpinMax", "0"));
         if (randomSpinMax < randomSpinMin || randomSpinMin < 0)
             logger.severe("invalid random spin cycles: max: " + randomSpinMax + " min: " + randomSpinMin);
+        eventLogCapacity = Integer.parseInt(properties.getProperty("EventLogCapacity", "65536"));
+        threadReportMillis = (long) (Double.parseDouble(properties.getProperty("ThreadReportSeconds", "60")) * 1000.0);
+        lockProfiling = Boolean.parseBoolean(properties.getProperty("LockProfiling", "False"));
 
         // cards settings
         featureSize = Integer.parseInt(properties.getProperty("FeatureSize", "3"));
@@ -203,13 +335,13 @@ public class Config {
         computerPlayers = Integer.parseInt(properties.getProperty("ComputerPlayers", "0"));
         players = humanPlayers + computerPlayers;
 
-        hints = Boolean.parseBoolean(properties.getProperty("Hints", "False"));
-        turnTimeoutMillis = (long) (Double.parseDouble(properties.getProperty("TurnTimeoutSeconds", "60")) * 1000.0);
-        turnTimeoutWarningMillis = (long) (Double.parseDouble(properties.getProperty("TurnTimeoutWarningSeconds", "60")) * 1000.0);
-        pointFreezeMillis = (long) (Double.parseDouble(properties.getProperty("PointFreezeSeconds", "1")) * 1000.0);
-        penaltyFreezeMillis = (long) (Double.parseDouble(properties.getProperty("PenaltyFreezeSeconds", "3")) * 1000.0);
-        tableDelayMillis = (long) (Double.parseDouble(properties.getProperty("TableDelaySeconds", "0.1")) * 1000.0);
         endGamePauseMillies = (long) (Double.parseDouble(properties.getProperty("EndGamePauseSeconds", "5")) * 1000.0);
+        maxClaimsInFlight = Integer.parseInt(properties.getProperty("MaxClaimsInFlight", "1"));
+        claimsPerSecond = Double.parseDouble(properties.getProperty("ClaimsPerSecond", "0"));
+        claimArbitrationMillis = (long) (Double.parseDouble(properties.getProperty("ClaimArbitrationSeconds", "0.002")) * 1000.0);
+        long configuredSeed = Long.parseLong(properties.getProperty("Seed", "0"));
+        seeded = configuredSeed != 0;
+        seed = seeded ? configuredSeed : System.nanoTime() ^ System.identityHashCode(this);
 
         // ui settings
         String[] names = properties.getProperty("PlayerNames", "Player 1, Player 2").split(",");
@@ -224,6 +356,11 @@ public class Config {
         playerCellWidth = Integer.parseInt(properties.getProperty("PlayerCellWidth", "300"));
         playerCellHeight = Integer.parseInt(properties.getProperty("PlayerCellHeight", "40"));
         fontSize = Integer.parseInt(properties.getProperty("FontSize", "40"));
+        frameRate = Integer.parseInt(properties.getProperty("FrameRate", "60"));
+        cardImageCacheSize = Integer.parseInt(properties.getProperty("CardImageCacheSize", "128"));
+        spectatorPort = Integer.parseInt(properties.getProperty("SpectatorPort", "0"));
+        remoteInputPort = Integer.parseInt(properties.getProperty("RemoteInputPort", "0"));
+        proceduralCards = Boolean.parseBoolean(properties.getProperty("ProceduralCards", "False"));
 
         // keyboard input data
         playerKeys = new int[players][rows * columns];
@@ -244,4 +381,26 @@ public class Config {
     public int[] playerKeys(int player) {
         return playerKeys[player];
     }
+
+    /**
+     * @return - the current snapshot of the settings that may be reloaded while the game runs.
+     */
+    public Timing timing() {
+        return timing;
+    }
+
+    /**
+     * Swaps in the reloadable settings of the given configuration, if they changed.
+     *
+     * @param properties - the configuration.
+     * @return           - the new snapshot, or null if the settings did not change.
+     * @throws IllegalArgumentException - if a setting cannot be parsed (the current snapshot stays).
+     */
+    public synchronized Timing reload(Properties properties) {
+        Timing reloaded = new Timing(timing.version + 1, properties);
+        if (reloaded.sameSettings(timing))
+            return null;
+        timing = reloaded;
+        return reloaded;
+    }
 }
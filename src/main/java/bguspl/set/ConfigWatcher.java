@@ -0,0 +1,112 @@
+package bguspl.set;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+/**
+ * Watches the configuration file while the game runs, and reloads the settings of Config::timing (the turn timeout,
+ * the freezes, the table delay, the hints and the log level) when it changes. The other settings keep their startup
+ * values. The dealer and the players read the current snapshot through Config::timing, without locking.
+ * A file that cannot be read or parsed is logged and ignored, and the current settings stay.
+ */
+public class ConfigWatcher implements Closeable {
+
+    /**
+     * The time to let the file settle after a change before reading it (editors often write a file in a few steps).
+     */
+    private static final long SETTLE_MILLIS = 100;
+
+    private final Logger logger;
+    private final Config config;
+    private final Path file;
+    private final WatchService watcher;
+    private final Thread thread;
+
+    /**
+     * The class constructor.
+     *
+     * @param logger - the logger object.
+     * @param config - the configuration to reload.
+     * @param file   - the configuration file.
+     * @throws IOException - if the directory of the file cannot be watched.
+     */
+    public ConfigWatcher(Logger logger, Config config, Path file) throws IOException {
+        this.logger = logger;
+        this.config = config;
+        this.file = file.toAbsolutePath();
+        watcher = FileSystems.getDefault().newWatchService();
+        this.file.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        thread = new ThreadLogger(this::watch, "config watcher", logger);
+        thread.setDaemon(true);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents())
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(event.context()))
+                        changed = true;
+                key.reset();
+                if (!changed)
+                    continue;
+                Thread.sleep(SETTLE_MILLIS);
+                reload();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {}
+    }
+
+    /**
+     * Reads the configuration file and swaps in its settings, if they changed.
+     *
+     * @return - the new settings, or null if they did not change (or the file could not be read).
+     */
+    public Config.Timing reload() {
+        Properties properties = new Properties();
+        try (InputStream is = Files.newInputStream(file)) {
+            properties.load(is);
+        } catch (IOException e) {
+            logger.severe("cannot reload configuration file " + file + ": " + e);
+            return null;
+        }
+        Config.Timing previous = config.timing();
+        Config.Timing timing;
+        try {
+            timing = config.reload(properties);
+        } catch (IllegalArgumentException e) {
+            logger.severe("invalid configuration file " + file + ", keeping version " + previous.version + ": " + e);
+            return null;
+        }
+        if (timing == null)
+            return null;
+        if (!timing.logLevel.equals(previous.logLevel))
+            logger.setLevel(timing.logLevel);
+        logger.severe("configuration reloaded, " + timing);
+        return timing;
+    }
+
+    @Override
+    public void close() {
+        try {
+            watcher.close();
+        } catch (IOException e) {
+            logger.severe("error closing the configuration watcher: " + e);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package bguspl.set;
 
+import java.util.Random;
+import java.util.SplittableRandom;
 import java.util.logging.Logger;
 
 public class Env {
@@ -9,10 +11,64 @@ public class Env {
     public final UserInterface ui;
     public final Util util;
 
+    /**
+     * The game event log (null if there is none).
+     */
+    public final GameEventLog events;
+
+    /**
+     * The metrics of the game's hot paths (never null, but only visible over JMX once registered).
+     */
+    public final GameMetrics metrics;
+
+    /**
+     * The CPU time and allocation accounting of the game threads.
+     */
+    public final ThreadAccounting threads;
+
+    /**
+     * The lock contention profiler (does nothing unless enabled in the configuration).
+     */
+    public final LockProfiler locks;
+
+    /**
+     * The time source of the game's timeouts (the system clock, unless a test runs the game on a virtual one).
+     */
+    public final Clock clock;
+
+    /**
+     * The random generators of the dealer's shuffles and of each computer player's key presses. Each one is split
+     * from Config::seed, so it draws the same numbers in every game with the same seed, whatever the other threads do.
+     */
+    public final Random dealerRandom;
+    public final Random[] playerRandoms;
+
     public Env(Logger logger, Config config, UserInterface ui, Util util) {
+        this(logger, config, ui, util, null);
+    }
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util, GameEventLog events) {
+        this(logger, config, ui, util, events, new GameMetrics(config.players, config.tableSize));
+    }
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util, GameEventLog events, GameMetrics metrics) {
+        this(logger, config, ui, util, events, metrics, Clock.SYSTEM);
+    }
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util, GameEventLog events, GameMetrics metrics, Clock clock) {
         this.logger = logger;
         this.config = config;
         this.ui = ui;
         this.util = util;
+        this.events = events;
+        this.metrics = metrics;
+        this.threads = new ThreadAccounting();
+        this.clock = clock;
+        SplittableRandom seeds = new SplittableRandom(config.seed);
+        this.dealerRandom = new Random(seeds.split().nextLong());
+        this.playerRandoms = new Random[config.players];
+        for (int i = 0; i < playerRandoms.length; i++)
+            playerRandoms[i] = new Random(seeds.split().nextLong());
+        this.locks = new LockProfiler(config.lockProfiling, config.players, clock);
     }
 }
@@ -0,0 +1,168 @@
+package bguspl.set;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded lock-free ring of game events (see GameEventLog), from any number of game threads to a single consumer.
+ * Each event is kept as a (type, player, slot, value, time) record in preallocated primitive arrays, so recording
+ * an event is a handful of stores: it never allocates, locks or blocks (an event that finds the ring full is
+ * dropped and counted).
+ * Dropped events are not lost silently: the number of events dropped before an event is kept with it, and the
+ * consumer receives it as a GameEventLog.DROPPED event just before that event.
+ */
+public class EventRing {
+
+    /**
+     * Receives the events drained from the ring.
+     */
+    public interface Sink {
+        void event(byte type, short player, short slot, long value, long nanos) throws IOException;
+    }
+
+    private final int mask;
+    private final byte[] types;
+    private final short[] players;
+    private final short[] slots;
+    private final long[] values;
+    private final long[] nanos;
+
+    /**
+     * The number of events dropped just before the event in each cell.
+     */
+    private final long[] gaps;
+
+    /**
+     * Per cell sequence numbers: a cell is free for the event numbered n when its sequence is n, and holds that
+     * event when its sequence is n + 1.
+     */
+    private final AtomicLongArray sequence;
+
+    /**
+     * The number of the next event to record.
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * The number of the next event to drain (written by the consumer only).
+     */
+    private volatile long head;
+
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * The number of events dropped since the last recorded event.
+     */
+    private final AtomicLong gap = new AtomicLong();
+
+    /**
+     * The class constructor.
+     *
+     * @param capacity - the number of events the ring can hold (rounded up to a power of 2).
+     */
+    public EventRing(int capacity) {
+        int cells = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        mask = cells - 1;
+        types = new byte[cells];
+        players = new short[cells];
+        slots = new short[cells];
+        values = new long[cells];
+        nanos = new long[cells];
+        gaps = new long[cells];
+        sequence = new AtomicLongArray(cells);
+        for (int i = 0; i < cells; i++)
+            sequence.set(i, i);
+    }
+
+    /**
+     * Records an event, unless the ring is full. Called by any thread.
+     *
+     * @param type   - the event type.
+     * @param player - the player id (or GameEventLog.NONE).
+     * @param slot   - the slot (or GameEventLog.NONE).
+     * @param value  - the card, time or score of the event (or GameEventLog.NONE).
+     * @return       - true iff the event was recorded.
+     */
+    public boolean record(int type, int player, int slot, long value) {
+        long position;
+        int cell;
+        do {
+            position = tail.get();
+            cell = (int) position & mask;
+            long free = sequence.get(cell) - position;
+            if (free < 0) { // the cell still holds the event one lap earlier
+                dropped.increment();
+                gap.incrementAndGet();
+                return false;
+            }
+            if (free > 0) // another thread recorded an event at this position meanwhile
+                continue;
+            if (tail.compareAndSet(position, position + 1))
+                break;
+        } while (true);
+        types[cell] = (byte) type;
+        players[cell] = (short) player;
+        slots[cell] = (short) slot;
+        values[cell] = value;
+        nanos[cell] = System.nanoTime();
+        gaps[cell] = gap.get() == 0 ? 0 : gap.getAndSet(0);
+        sequence.set(cell, position + 1); // publish the event to the consumer
+        return true;
+    }
+
+    /**
+     * Moves all the published events from the ring to a sink, in the order they were recorded, each one preceded by
+     * a GameEventLog.DROPPED event if events were dropped just before it. Called by the consumer only.
+     *
+     * @param sink - receives the events.
+     * @return     - the number of events moved.
+     * @throws IOException - if the sink fails (the event it failed on is dropped).
+     */
+    public int drain(Sink sink) throws IOException {
+        int count = 0;
+        for (long position = head; ; position++) {
+            int cell = (int) position & mask;
+            if (sequence.get(cell) != position + 1)
+                return count;
+            byte type = types[cell];
+            short player = players[cell];
+            short slot = slots[cell];
+            long value = values[cell];
+            long time = nanos[cell];
+            long dropped = gaps[cell];
+            sequence.set(cell, position + mask + 1); // free the cell for the event one lap later
+            head = position + 1;
+            if (dropped > 0) {
+                count++;
+                sink.event((byte) GameEventLog.DROPPED, (short) GameEventLog.NONE, (short) GameEventLog.NONE, dropped, time);
+            }
+            count++;
+            sink.event(type, player, slot, value, time);
+        }
+    }
+
+    /**
+     * Passes the events dropped since the last recorded event to a sink, as a GameEventLog.DROPPED event. Called by
+     * the consumer only, once no more events are recorded.
+     *
+     * @param sink - receives the event.
+     * @return     - the number of events moved (0 or 1).
+     * @throws IOException - if the sink fails.
+     */
+    public int drainGap(Sink sink) throws IOException {
+        long dropped = gap.getAndSet(0);
+        if (dropped == 0)
+            return 0;
+        sink.event((byte) GameEventLog.DROPPED, (short) GameEventLog.NONE, (short) GameEventLog.NONE, dropped, System.nanoTime());
+        return 1;
+    }
+
+    /**
+     * @return - the number of events dropped because the ring was full.
+     */
+    public long dropped() {
+        return dropped.sum();
+    }
+}
@@ -0,0 +1,140 @@
+package bguspl.set;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * A structured log of the game events (see the event types below).
+ * Each event is kept as a (type, player, slot, value, time) record in a preallocated EventRing, so recording an
+ * event is a handful of stores: it never allocates, formats, locks or blocks (an event that finds the ring full is
+ * dropped and counted). A background thread drains the ring to a GameJournal, where each run of dropped events shows
+ * as a DROPPED event, so a reader knows the journal is incomplete from there on.
+ */
+public class GameEventLog {
+
+    public static final int CARD_PLACED = 1;      // slot, value = card
+    public static final int CARD_REMOVED = 2;     // slot
+    public static final int TOKEN_PLACED = 3;     // player, slot
+    public static final int TOKEN_REMOVED = 4;    // player, slot
+    public static final int TOKENS_REMOVED = 5;   // slot (NONE for all the slots)
+    public static final int COUNTDOWN = 6;        // value = millies (slot = 1 if warning)
+    public static final int ELAPSED = 7;          // value = millies
+    public static final int TIMER_STARTED = 8;    // value = start time (as returned by Env::clock)
+    public static final int FREEZE = 9;           // player, value = millies
+    public static final int SCORE = 10;           // player, value = score
+    public static final int WINNER = 11;          // player
+    public static final int CLAIM = 12;           // player, slot, value = card (one event per card of the claim)
+    public static final int VERDICT = 13;         // player, value = 1 for a point, -1 for a penalty, 0 if dropped
+    public static final int DROPPED = 14;         // value = the number of events dropped here (the ring was full)
+
+    /**
+     * The value of a field an event does not use.
+     */
+    public static final int NONE = -1;
+
+    /**
+     * How long the drainer sleeps when the ring is empty.
+     */
+    private static final long DRAIN_PERIOD_NANOS = 10_000_000;
+
+    private final Logger logger;
+    private final EventRing ring;
+    private final GameJournal journal;
+    private final Thread drainer;
+    private volatile boolean closed;
+
+    /**
+     * The class constructor. Starts the drainer thread.
+     *
+     * @param logger   - the logger for errors of the drainer.
+     * @param path     - the journal file to drain the events to (replaced if it exists).
+     * @param capacity - the number of events the ring can hold.
+     * @throws IOException - if the file cannot be created.
+     */
+    public GameEventLog(Logger logger, Path path, int capacity) throws IOException {
+        this.logger = logger;
+        ring = new EventRing(capacity);
+        journal = new GameJournal(path, System.nanoTime(), System.currentTimeMillis());
+
+        drainer = new Thread(this::drain, "event-log");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    /**
+     * Records an event, unless the ring is full. Called by any thread.
+     *
+     * @param type   - the event type.
+     * @param player - the player id (or NONE).
+     * @param slot   - the slot (or NONE).
+     * @param value  - the card, time or score of the event (or NONE).
+     */
+    public void record(int type, int player, int slot, long value) {
+        ring.record(type, player, slot, value);
+    }
+
+    /**
+     * @return - the number of events dropped because the ring was full.
+     */
+    public long dropped() {
+        return ring.dropped();
+    }
+
+    /**
+     * Stops the drainer, after it drained all the recorded events, and closes the journal.
+     */
+    public void close() {
+        closed = true;
+        LockSupport.unpark(drainer);
+        try {
+            drainer.join();
+        } catch (InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+        }
+        if (dropped() > 0)
+            logger.warning("event log dropped " + dropped() + " events");
+    }
+
+    /**
+     * The drainer thread starts here.
+     */
+    private void drain() {
+        try {
+            boolean done = false;
+            while (!done) {
+                done = closed; // drain once more after the last recorded event
+                if (drainRing() == 0 && !done)
+                    LockSupport.parkNanos(this, DRAIN_PERIOD_NANOS);
+            }
+            if (ring.drainGap(journal::append) > 0)
+                journal.commit();
+        } catch (IOException e) {
+            logger.severe("cannot write the event log: " + e);
+        } finally {
+            try {
+                journal.close();
+            } catch (IOException ignored) {}
+        }
+    }
+
+    /**
+     * Moves all the published events from the ring to the journal, and commits them.
+     *
+     * @return - the number of events moved.
+     */
+    private int drainRing() throws IOException {
+        int count = ring.drain(journal::append);
+        if (count > 0)
+            journal.commit();
+        return count;
+    }
+
+    /**
+     * Receives the events read from a game journal.
+     */
+    public interface Visitor {
+        void event(int type, int player, int slot, long value, long nanos);
+    }
+}
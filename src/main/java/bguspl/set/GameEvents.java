@@ -0,0 +1,155 @@
+package bguspl.set;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * The JDK Flight Recorder events of the game, so a recording (e.g. java -XX:StartFlightRecording) shows the game's
+ * activity next to GC, lock contention and thread scheduling.
+ * When recording is off, begin/end/commit do nothing and the event objects do not escape, so the JIT removes
+ * them. Payloads that need formatting (card and slot lists) are only built after shouldCommit().
+ * The events of the dealer's steady state loop are only created while they are enabled (see the event types
+ * below): until the JIT compiles the loop, every event object is a real allocation.
+ */
+public final class GameEvents {
+
+    private static final String CATEGORY = "Set Game";
+
+    public static final EventType VERDICT = EventType.getEventType(Verdict.class);
+    public static final EventType RESHUFFLE = EventType.getEventType(Reshuffle.class);
+    public static final EventType CARD_BATCH = EventType.getEventType(CardBatch.class);
+    public static final EventType TABLE_CHANGE = EventType.getEventType(TableChange.class);
+    public static final EventType FIND_SETS = EventType.getEventType(FindSets.class);
+
+    private GameEvents() {}
+
+    @Name("bguspl.set.Claim")
+    @Label("Claim")
+    @Category(CATEGORY)
+    @Description("A player claims a set: from offering the claim to the dealer to getting the verdict")
+    public static class Claim extends Event {
+
+        @Label("Player")
+        public int player;
+
+        @Label("Slots")
+        public String slots;
+
+        @Label("Cards")
+        public String cards;
+
+        @Label("Admitted")
+        @Description("False if the dealer's queue rejected the claim")
+        public boolean admitted;
+
+        @Label("Verdict")
+        @Description("1 for a point, -1 for a penalty, 0 if dropped without a check")
+        public int verdict;
+    }
+
+    @Name("bguspl.set.Verdict")
+    @Label("Verdict")
+    @Category(CATEGORY)
+    @Description("The dealer checks a claim, removes the cards of a set and tells the player")
+    public static class Verdict extends Event {
+
+        @Label("Player")
+        public int player;
+
+        @Label("Slots")
+        public String slots;
+
+        @Label("Cards")
+        public String cards;
+
+        @Label("Verdict")
+        @Description("1 for a point, -1 for a penalty, 0 if dropped without a check")
+        public int verdict;
+
+        @Label("Queued")
+        @Description("From making the claim to the start of the check")
+        @Timespan
+        public long queued;
+    }
+
+    @Name("bguspl.set.Reshuffle")
+    @Label("Reshuffle")
+    @Category(CATEGORY)
+    @Description("The dealer returns all the cards on the table to the deck")
+    public static class Reshuffle extends Event {
+
+        @Label("Cards Returned")
+        public int cards;
+
+        @Label("Deck Size")
+        public int deckSize;
+    }
+
+    @Name("bguspl.set.CardBatch")
+    @Label("Card Batch")
+    @Category(CATEGORY)
+    @Description("The dealer fills the empty slots with cards from the deck")
+    public static class CardBatch extends Event {
+
+        @Label("Count")
+        public int count;
+
+        @Label("Slots")
+        public String slots;
+
+        @Label("Cards")
+        public String cards;
+    }
+
+    @Name("bguspl.set.TableChange")
+    @Label("Table Change")
+    @Category(CATEGORY)
+    @Description("A card is placed on the table or removed from it, including the table delay")
+    public static class TableChange extends Event {
+
+        @Label("Card")
+        public int card;
+
+        @Label("Slot")
+        public int slot;
+
+        @Label("Placed")
+        @Description("True for a placed card, false for a removed one")
+        public boolean placed;
+    }
+
+    @Name("bguspl.set.Freeze")
+    @Label("Freeze")
+    @Category(CATEGORY)
+    @Description("A player is frozen after a point or a penalty")
+    public static class Freeze extends Event {
+
+        @Label("Player")
+        public int player;
+
+        @Label("Point")
+        @Description("True for a point freeze, false for a penalty freeze")
+        public boolean point;
+    }
+
+    @Name("bguspl.set.FindSets")
+    @Label("Find Sets")
+    @Category(CATEGORY)
+    @Description("A search for sets among cards")
+    public static class FindSets extends Event {
+
+        @Label("Cards")
+        public int cards;
+
+        @Label("Requested")
+        public int requested;
+
+        @Label("Found")
+        public int found;
+    }
+}
@@ -0,0 +1,127 @@
+package bguspl.set;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An append-only binary journal of game events, written through a memory-mapped file.
+ * File format (big endian): a HEADER_SIZE byte header of MAGIC, the start time of the game (System::nanoTime), the
+ * matching wall clock time (System::currentTimeMillis) and the number of committed records, followed by the records,
+ * RECORD_SIZE bytes each: type (byte), player (short), slot (short), value (long) and time (long, System::nanoTime).
+ * The record count in the header is only updated by commit, so a journal cut short (e.g. by a crash) is still
+ * readable up to its last commit. The file grows by whole regions, so it may end with unused bytes.
+ * A journal is written by a single thread.
+ */
+public class GameJournal implements AutoCloseable {
+
+    public static final long MAGIC = 0x5345544a524e4c31L; // "SETJRNL1"
+    public static final int HEADER_SIZE = 32;
+    public static final int RECORD_SIZE = 1 + 2 + 2 + 8 + 8;
+
+    private static final int COUNT_OFFSET = 24;
+
+    /**
+     * The number of bytes the journal maps (and grows the file by) at a time.
+     */
+    private static final int REGION_SIZE = 1 << 20;
+
+    private final FileChannel file;
+    private final MappedByteBuffer header;
+    private MappedByteBuffer region;
+
+    /**
+     * The file position of the current region.
+     */
+    private long regionStart;
+
+    private long records;
+
+    /**
+     * The class constructor.
+     *
+     * @param path        - the journal file (replaced if it exists).
+     * @param startNanos  - the start time of the game (System::nanoTime).
+     * @param startMillis - the wall clock time at startNanos (System::currentTimeMillis).
+     * @throws IOException - if the file cannot be created or mapped.
+     */
+    public GameJournal(Path path, long startNanos, long startMillis) throws IOException {
+        file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        header = file.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        header.putLong(MAGIC).putLong(startNanos).putLong(startMillis).putLong(0);
+        regionStart = HEADER_SIZE;
+        region = file.map(FileChannel.MapMode.READ_WRITE, regionStart, REGION_SIZE);
+    }
+
+    /**
+     * Appends a record. It is read back only once it is committed.
+     *
+     * @param type   - the event type (see GameEventLog).
+     * @param player - the player id.
+     * @param slot   - the slot.
+     * @param value  - the value of the event.
+     * @param nanos  - the time of the event (System::nanoTime).
+     * @throws IOException - if the journal cannot grow.
+     */
+    public void append(byte type, short player, short slot, long value, long nanos) throws IOException {
+        if (region.remaining() < RECORD_SIZE) {
+            regionStart += region.position();
+            region = file.map(FileChannel.MapMode.READ_WRITE, regionStart, REGION_SIZE);
+        }
+        region.put(type).putShort(player).putShort(slot).putLong(value).putLong(nanos);
+        records++;
+    }
+
+    /**
+     * Publishes all the appended records in the header.
+     */
+    public void commit() {
+        header.putLong(COUNT_OFFSET, records);
+    }
+
+    /**
+     * @return - the number of records appended.
+     */
+    public long records() {
+        return records;
+    }
+
+    /**
+     * Commits, writes the mapped regions to the disk and closes the file.
+     *
+     * @throws IOException - if the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        commit();
+        header.force();
+        region.force();
+        file.close();
+    }
+
+    /**
+     * Reads the committed records of a journal.
+     *
+     * @param path    - the journal file.
+     * @param visitor - receives the records, in the order they were appended.
+     * @return        - the number of records read.
+     * @throws IOException - if the file cannot be read or is not a journal.
+     */
+    public static long read(Path path, GameEventLog.Visitor visitor) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_SIZE || buffer.getLong() != MAGIC)
+                throw new IOException(path + " is not a game journal");
+            buffer.getLong();
+            buffer.getLong();
+            long count = Math.min(buffer.getLong(), buffer.remaining() / RECORD_SIZE);
+            for (long i = 0; i < count; i++)
+                visitor.event(buffer.get(), buffer.getShort(), buffer.getShort(), buffer.getLong(), buffer.getLong());
+            return count;
+        }
+    }
+}
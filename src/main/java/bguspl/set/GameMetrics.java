@@ -0,0 +1,232 @@
+package bguspl.set;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.logging.Logger;
+
+/**
+ * Counters and latency histograms of the dealer's and the players' hot paths, exposed over JMX (see register()).
+ * Recording is lock-free and never allocates (LatencyHistogram, LongAdder and atomic arrays), so the metrics are
+ * always on; JMX clients only pay for reading them.
+ */
+public class GameMetrics implements GameMetricsMXBean {
+
+    public static final String DOMAIN = "bguspl.set";
+
+    /**
+     * From the time a claim is made (and offered to the dealer) to the dealer's verdict on it.
+     */
+    public final LatencyHistogram claimLatency = new LatencyHistogram();
+
+    /**
+     * The work of one dealer loop iteration (checking a claim and refilling the table), without the sleep.
+     */
+    public final LatencyHistogram dealerLoop = new LatencyHistogram();
+
+    /**
+     * The time spent waiting for the slot lock.
+     */
+    public final LatencyHistogram slotLockWait = new LatencyHistogram();
+
+    /**
+     * The time the slot lock was held.
+     */
+    public final LatencyHistogram slotLockHold = new LatencyHistogram();
+
+    /**
+     * The time it took to place cards from the deck on the empty slots.
+     */
+    public final LatencyHistogram refill = new LatencyHistogram();
+
+    /**
+     * The stages of the key presses, from the key event to the token on the screen.
+     */
+    public final InputTrace input;
+
+    private final LongAdder reshuffles = new LongAdder();
+    private final AtomicLongArray points;
+    private final AtomicLongArray penalties;
+    private final long startNanos = System.nanoTime();
+    private volatile IntSupplier claimQueueDepth = () -> 0;
+    private final List<ObjectName> registered = new ArrayList<>();
+
+    /**
+     * The class constructor.
+     *
+     * @param players   - the number of players.
+     * @param tableSize - the number of slots on the table.
+     */
+    public GameMetrics(int players, int tableSize) {
+        input = new InputTrace(players, tableSize);
+        points = new AtomicLongArray(players);
+        penalties = new AtomicLongArray(players);
+    }
+
+    /**
+     * @param depth - the source of the depth of the dealer's claim queue.
+     */
+    public void claimQueue(IntSupplier depth) {
+        claimQueueDepth = depth;
+    }
+
+    public void reshuffled() {
+        reshuffles.increment();
+    }
+
+    public void point(int player) {
+        points.incrementAndGet(player);
+    }
+
+    public void penalty(int player) {
+        penalties.incrementAndGet(player);
+    }
+
+    @Override
+    public int getClaimQueueDepth() {
+        return claimQueueDepth.getAsInt();
+    }
+
+    @Override
+    public long getReshuffles() {
+        return reshuffles.sum();
+    }
+
+    @Override
+    public long[] getPoints() {
+        return toArray(points);
+    }
+
+    @Override
+    public long[] getPenalties() {
+        return toArray(penalties);
+    }
+
+    @Override
+    public double[] getPointsPerMinute() {
+        return perMinute(points);
+    }
+
+    @Override
+    public double[] getPenaltiesPerMinute() {
+        return perMinute(penalties);
+    }
+
+    @Override
+    public void resetHistograms() {
+        for (LatencyHistogram histogram : new LatencyHistogram[]{claimLatency, dealerLoop, slotLockWait, slotLockHold, refill,
+                input.dequeued, input.placed, input.painted, input.freezePainted})
+            histogram.reset();
+    }
+
+    private static long[] toArray(AtomicLongArray counters) {
+        long[] values = new long[counters.length()];
+        for (int i = 0; i < values.length; i++)
+            values[i] = counters.get(i);
+        return values;
+    }
+
+    private double[] perMinute(AtomicLongArray counters) {
+        double minutes = Math.max(1, System.nanoTime() - startNanos) / (double) TimeUnit.MINUTES.toNanos(1);
+        double[] rates = new double[counters.length()];
+        for (int i = 0; i < rates.length; i++)
+            rates[i] = counters.get(i) / minutes;
+        return rates;
+    }
+
+    /**
+     * Registers the metrics, and each of the histograms, with the platform MBean server.
+     * Failures are logged, as the game runs fine without them.
+     *
+     * @param logger - the logger object.
+     */
+    public void register(Logger logger) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            register(server, new ObjectName(DOMAIN + ":type=GameMetrics"), this);
+            register(server, histogramName("claimLatency"), view(claimLatency));
+            register(server, histogramName("dealerLoop"), view(dealerLoop));
+            register(server, histogramName("slotLockWait"), view(slotLockWait));
+            register(server, histogramName("slotLockHold"), view(slotLockHold));
+            register(server, histogramName("refill"), view(refill));
+            register(server, histogramName("inputDequeued"), view(input.dequeued));
+            register(server, histogramName("inputPlaced"), view(input.placed));
+            register(server, histogramName("inputPainted"), view(input.painted));
+            register(server, histogramName("inputFreezePainted"), view(input.freezePainted));
+        } catch (JMException e) {
+            logger.severe("error registering the game metrics: " + e);
+        }
+    }
+
+    /**
+     * Removes the metrics from the platform MBean server.
+     */
+    public void unregister() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registered) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException ignored) {}
+        }
+        registered.clear();
+    }
+
+    private void register(MBeanServer server, ObjectName name, Object bean) throws JMException {
+        if (server.isRegistered(name))
+            server.unregisterMBean(name); // left over from a previous game in this process
+        server.registerMBean(bean, name);
+        registered.add(name);
+    }
+
+    private static ObjectName histogramName(String name) throws JMException {
+        return new ObjectName(DOMAIN + ":type=GameMetrics,histogram=" + name);
+    }
+
+    private static StandardMBean view(LatencyHistogram histogram) {
+        HistogramMXBean view = new HistogramMXBean() {
+            @Override
+            public long getCount() {
+                return histogram.count();
+            }
+
+            @Override
+            public long getMeanMicros() {
+                return TimeUnit.NANOSECONDS.toMicros(histogram.mean());
+            }
+
+            @Override
+            public long getP50Micros() {
+                return TimeUnit.NANOSECONDS.toMicros(histogram.percentile(50));
+            }
+
+            @Override
+            public long getP90Micros() {
+                return TimeUnit.NANOSECONDS.toMicros(histogram.percentile(90));
+            }
+
+            @Override
+            public long getP99Micros() {
+                return TimeUnit.NANOSECONDS.toMicros(histogram.percentile(99));
+            }
+
+            @Override
+            public long getMaxMicros() {
+                return TimeUnit.NANOSECONDS.toMicros(histogram.max());
+            }
+
+            @Override
+            public void reset() {
+                histogram.reset();
+            }
+        };
+        return new StandardMBean(view, HistogramMXBean.class, true);
+    }
+}
@@ -0,0 +1,63 @@
+package bguspl.set;
+
+/**
+ * The management interface of the game metrics (see GameMetrics), as seen in JMX clients (e.g. jconsole) under
+ * the bguspl.set domain.
+ */
+public interface GameMetricsMXBean {
+
+    /**
+     * @return - the number of claims waiting for the dealer.
+     */
+    int getClaimQueueDepth();
+
+    /**
+     * @return - the number of times the cards on the table were returned to the deck.
+     */
+    long getReshuffles();
+
+    /**
+     * @return - the number of points given to each player.
+     */
+    long[] getPoints();
+
+    /**
+     * @return - the number of penalties given to each player.
+     */
+    long[] getPenalties();
+
+    /**
+     * @return - the number of points per minute of each player, since the game started.
+     */
+    double[] getPointsPerMinute();
+
+    /**
+     * @return - the number of penalties per minute of each player, since the game started.
+     */
+    double[] getPenaltiesPerMinute();
+
+    /**
+     * Clears all the latency histograms (the counters keep counting).
+     */
+    void resetHistograms();
+
+    /**
+     * The management interface of one latency histogram. All durations are in microseconds.
+     */
+    interface HistogramMXBean {
+
+        long getCount();
+
+        long getMeanMicros();
+
+        long getP50Micros();
+
+        long getP90Micros();
+
+        long getP99Micros();
+
+        long getMaxMicros();
+
+        void reset();
+    }
+}
@@ -0,0 +1,178 @@
+package bguspl.set;
+
+import bguspl.set.ex.Player;
+
+import java.awt.GraphicsEnvironment;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static bguspl.set.GameEventLog.*;
+
+/**
+ * Replays a game from its journal (see GameJournal), checking it with a ReplayValidator and, unless it runs
+ * headless, showing it on a Swing user interface.
+ * Usage: GameReplay journal [speed], where speed is a multiple of the original pace of the game (1 by default) and
+ * 0 replays the journal headless, as fast as possible. The replay uses config.properties, which must match the
+ * configuration of the recorded game.
+ * Exits with 1 if the game broke a rule, and with 2 if the journal is incomplete (events were dropped while
+ * recording) so the game could not be verified to its end.
+ */
+public class GameReplay {
+
+    private final GameEventLog.Visitor target;
+    private final double speed;
+    private long firstNanos = Long.MIN_VALUE;
+    private long replayStartNanos;
+
+    /**
+     * The class constructor.
+     *
+     * @param target - receives the replayed events.
+     * @param speed  - a multiple of the original pace of the game (0 for no pacing).
+     */
+    public GameReplay(GameEventLog.Visitor target, double speed) {
+        this.target = target;
+        this.speed = speed;
+    }
+
+    /**
+     * Replays a journal into the target, at the replay speed.
+     *
+     * @param journal - the journal file.
+     * @return        - the number of events replayed.
+     * @throws IOException - if the journal cannot be read.
+     */
+    public long replay(Path journal) throws IOException {
+        return GameJournal.read(journal, this::pace);
+    }
+
+    private void pace(int type, int player, int slot, long value, long nanos) {
+        if (firstNanos == Long.MIN_VALUE) {
+            firstNanos = nanos;
+            replayStartNanos = System.nanoTime();
+        }
+        if (speed > 0) {
+            long due = replayStartNanos + (long) ((nanos - firstNanos) / speed);
+            for (long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime()) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+        target.event(type, player, slot, value, nanos);
+    }
+
+    /**
+     * @param targets - the targets to pass the events to.
+     * @return        - a visitor passing each event to all the targets, in order.
+     */
+    public static GameEventLog.Visitor all(GameEventLog.Visitor... targets) {
+        return (type, player, slot, value, nanos) -> {
+            for (GameEventLog.Visitor target : targets)
+                target.event(type, player, slot, value, nanos);
+        };
+    }
+
+    /**
+     * Applies the replayed events to a user interface.
+     */
+    public static class UserInterfaceTarget implements GameEventLog.Visitor {
+
+        private final UserInterface ui;
+        private final boolean live;
+        private int[] winners = new int[0];
+
+        /**
+         * @param ui   - the user interface to apply the events to.
+         * @param live - true iff the events are applied as they happen (so the recorded timer start is used as is).
+         */
+        public UserInterfaceTarget(UserInterface ui, boolean live) {
+            this.ui = ui;
+            this.live = live;
+        }
+
+        @Override
+        public void event(int type, int player, int slot, long value, long nanos) {
+            if (type != WINNER)
+                announceWinners();
+            switch (type) {
+                case CARD_PLACED: ui.placeCard((int) value, slot); break;
+                case CARD_REMOVED: ui.removeCard(slot); break;
+                case TOKEN_PLACED: ui.placeToken(player, slot); break;
+                case TOKEN_REMOVED: ui.removeToken(player, slot); break;
+                case TOKENS_REMOVED:
+                    if (slot == NONE) ui.removeTokens();
+                    else ui.removeTokens(slot);
+                    break;
+                case COUNTDOWN: ui.setCountdown(value, slot == 1); break;
+                case ELAPSED: ui.setElapsed(value); break;
+                // a replayed timer runs from the time of the replay (at the normal pace)
+                case TIMER_STARTED: ui.startTimer(live ? value : System.currentTimeMillis()); break;
+                case FREEZE: ui.setFreeze(player, value); break;
+                case SCORE: ui.setScore(player, (int) value); break;
+                case WINNER:
+                    winners = Arrays.copyOf(winners, winners.length + 1);
+                    winners[winners.length - 1] = player;
+                    break;
+                default: // claims and verdicts are not shown
+            }
+        }
+
+        /**
+         * Announces the winners recorded so far, if any. Called at the end of the replay as well.
+         */
+        public void announceWinners() {
+            if (winners.length > 0)
+                ui.announceWinner(winners);
+            winners = new int[0];
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+
+        if (args.length < 1) {
+            System.out.println("usage: GameReplay journal [speed]");
+            return;
+        }
+        Path journal = Paths.get(args[0]);
+        double speed = args.length > 1 ? Double.parseDouble(args[1]) : 1;
+
+        Logger logger = Logger.getLogger("SetGameReplay");
+        Config config = new Config(logger, "config.properties");
+        Util util = new UtilImpl(config);
+        ReplayValidator validator = new ReplayValidator(config, util);
+
+        UserInterfaceSwing ui = null;
+        UserInterfaceTarget uiTarget = null;
+        if (speed > 0 && !GraphicsEnvironment.isHeadless()) {
+            ui = new UserInterfaceSwing(logger, config, util, new Player[0]);
+            uiTarget = new UserInterfaceTarget(ui, false);
+        }
+
+        long start = System.nanoTime();
+        long events = new GameReplay(uiTarget != null ? all(validator, uiTarget) : validator, speed).replay(journal);
+        long nanos = System.nanoTime() - start;
+        if (uiTarget != null)
+            uiTarget.announceWinners();
+
+        System.out.println("replayed " + events + " events in " + nanos / 1_000_000 + "ms ("
+                + (nanos > 0 ? events * 1_000_000_000L / nanos : events) + " events/s)");
+        System.out.println(validator.report());
+
+        if (ui != null) {
+            Thread.sleep(config.endGamePauseMillies);
+            ui.dispose();
+        }
+        if (validator.violations() > 0)
+            System.exit(1);
+        if (validator.dropped() > 0)
+            System.exit(2);
+    }
+}
@@ -5,7 +5,6 @@ import bguspl.set.ex.Player;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.util.Arrays;
-import java.util.logging.Logger;
 
 /**
  * This class handles the input from the keyboard, translates it to table grid slots and dispatches accordingly.
@@ -16,11 +15,9 @@ class InputManager extends KeyAdapter {
     private final Player[] players;
     int[] keyMap = new int[MAX_KEY_CODE + 1];
     int[] keyToSlot = new int[MAX_KEY_CODE + 1];
-    private final Logger logger;
 
-    public InputManager(Logger logger, Config config, Player[] players) {
+    public InputManager(Config config, Player[] players) {
         this.players = players;
-        this.logger = logger;
 
         // initialize the keys
         for (int player = 0; player < config.players; ++player)
@@ -40,11 +37,12 @@ class InputManager extends KeyAdapter {
     @Override
     public void keyPressed(KeyEvent e) {
         // dispatch the key event to the player according to the key map
+        // note: this runs on the event dispatch thread, the press is logged later by the player thread
+        long pressedNanos = System.nanoTime();
         int keyCode = e.getKeyCode();
+        if (keyCode < 0 || keyCode >= keyMap.length) return;
         int player = keyMap[keyCode] - 1;
-        if (player >= 0){
-            logger.severe("key " + keyCode + " was pressed by player " + (player + 1));
-            players[player].keyPressed(keyToSlot[keyCode]);
-        }
+        if (player >= 0 && player < players.length)
+            players[player].keyPressed(keyToSlot[keyCode], pressedNanos);
     }
 }
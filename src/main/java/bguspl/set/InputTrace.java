@@ -0,0 +1,129 @@
+package bguspl.set;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Logger;
+
+/**
+ * Traces key presses from the key event to the token on the screen: the time of each press is kept along the way
+ * (InputManager, the player's key queue, Table::placeToken), and each stage records the time since the press in a
+ * histogram of its own. A claim is traced on to the moment its point or penalty freeze is painted.
+ * Stages: dequeued by the player thread, token placed on the table, token painted, and freeze painted.
+ */
+public class InputTrace {
+
+    /**
+     * From the key press to the player thread taking it from the player's key queue.
+     */
+    public final LatencyHistogram dequeued = new LatencyHistogram();
+
+    /**
+     * From the key press to the token placed on the table (Table::placeToken).
+     */
+    public final LatencyHistogram placed = new LatencyHistogram();
+
+    /**
+     * From the key press to the token painted by the user interface.
+     */
+    public final LatencyHistogram painted = new LatencyHistogram();
+
+    /**
+     * From the key press that completed a claim to the point or penalty freeze painted by the user interface.
+     */
+    public final LatencyHistogram freezePainted = new LatencyHistogram();
+
+    private final int tableSize;
+
+    /**
+     * The key press time of each token (per player and slot) that is not painted yet (0 if none).
+     */
+    private final AtomicLongArray tokenPressed;
+
+    /**
+     * The key press time of each player's claim whose freeze is not painted yet (0 if none).
+     */
+    private final AtomicLongArray claimPressed;
+
+    /**
+     * The class constructor.
+     *
+     * @param players   - the number of players.
+     * @param tableSize - the number of slots on the table.
+     */
+    public InputTrace(int players, int tableSize) {
+        this.tableSize = tableSize;
+        tokenPressed = new AtomicLongArray(players * tableSize);
+        claimPressed = new AtomicLongArray(players);
+    }
+
+    /**
+     * Called by a player thread when it takes a key press from its queue.
+     *
+     * @param pressedNanos - the time of the key press.
+     */
+    public void dequeued(long pressedNanos) {
+        dequeued.record(System.nanoTime() - pressedNanos);
+    }
+
+    /**
+     * Called when a token is placed on the table.
+     *
+     * @param player       - the player the token belongs to.
+     * @param slot         - the slot of the token.
+     * @param pressedNanos - the time of the key press that placed the token.
+     */
+    public void tokenPlaced(int player, int slot, long pressedNanos) {
+        placed.record(System.nanoTime() - pressedNanos);
+        tokenPressed.set(player * tableSize + slot, pressedNanos);
+    }
+
+    /**
+     * Called by the user interface when it paints a token.
+     *
+     * @param player - the player the token belongs to.
+     * @param slot   - the slot of the token.
+     */
+    public void tokenPainted(int player, int slot) {
+        int i = player * tableSize + slot;
+        if (tokenPressed.get(i) == 0)
+            return; // painted before
+        long pressedNanos = tokenPressed.getAndSet(i, 0);
+        if (pressedNanos != 0)
+            painted.record(System.nanoTime() - pressedNanos);
+    }
+
+    /**
+     * Called when a player gets a point or a penalty for a claim.
+     *
+     * @param player       - the player.
+     * @param pressedNanos - the time of the key press that completed the claim.
+     */
+    public void claimJudged(int player, long pressedNanos) {
+        claimPressed.set(player, pressedNanos);
+    }
+
+    /**
+     * Called by the user interface when it paints the freeze of a player.
+     *
+     * @param player - the player.
+     */
+    public void freezePainted(int player) {
+        if (claimPressed.get(player) == 0)
+            return;
+        long pressedNanos = claimPressed.getAndSet(player, 0);
+        if (pressedNanos != 0)
+            freezePainted.record(System.nanoTime() - pressedNanos);
+    }
+
+    /**
+     * Logs the latency percentiles of each stage, all measured from the key press.
+     *
+     * @param logger - the logger object.
+     */
+    public void report(Logger logger) {
+        logger.info("input latency from the key press:"
+                + System.lineSeparator() + "  dequeued       " + dequeued.summary()
+                + System.lineSeparator() + "  token placed   " + placed.summary()
+                + System.lineSeparator() + "  token painted  " + painted.summary()
+                + System.lineSeparator() + "  freeze painted " + freezePainted.summary());
+    }
+}
@@ -0,0 +1,111 @@
+package bguspl.set;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of durations (in nanoseconds), with log-linear buckets: each power of two is split into
+ * 16 sub-buckets, so percentiles are accurate to about 6%.
+ * Recording a value is a few atomic adds and never allocates, so it can stay on in the game's hot paths.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    private static long highestValueIn(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int magnitude = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        return ((SUB_BUCKETS + sub + 1) << (magnitude - SUB_BUCKET_BITS)) - 1;
+    }
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos - the duration in nanoseconds (negative values are recorded as 0).
+     */
+    public void record(long nanos) {
+        if (nanos < 0)
+            nanos = 0;
+        counts.incrementAndGet(bucketOf(nanos));
+        count.incrementAndGet();
+        sum.addAndGet(nanos);
+        long current;
+        while (nanos > (current = max.get()) && !max.compareAndSet(current, nanos)) ;
+    }
+
+    /**
+     * @return - the number of recorded durations.
+     */
+    public long count() {
+        return count.get();
+    }
+
+    /**
+     * @return - the longest recorded duration, in nanoseconds.
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * @return - the mean recorded duration, in nanoseconds.
+     */
+    public long mean() {
+        long n = count.get();
+        return n == 0 ? 0 : sum.get() / n;
+    }
+
+    /**
+     * @param percentile - the percentile (between 0 and 100).
+     * @return           - an upper bound of the given percentile of the recorded durations, in nanoseconds.
+     */
+    public long percentile(double percentile) {
+        long n = count.get();
+        if (n == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(n * percentile / 100.0));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= rank)
+                return Math.min(highestValueIn(bucket), max.get());
+        }
+        return max.get();
+    }
+
+    /**
+     * Clears all the recorded durations.
+     */
+    public void reset() {
+        for (int bucket = 0; bucket < BUCKETS; bucket++)
+            counts.set(bucket, 0);
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    /**
+     * @return - a one line summary (count, percentiles and max, in milliseconds).
+     */
+    public String summary() {
+        return String.format("n=%d p50=%.3fms p90=%.3fms p99=%.3fms max=%.3fms", count(),
+                percentile(50) / 1e6, percentile(90) / 1e6, percentile(99) / 1e6, max() / 1e6);
+    }
+}
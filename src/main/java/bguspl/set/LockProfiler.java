@@ -0,0 +1,256 @@
+package bguspl.set;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * An opt-in profiler of the game's locks (see Config::lockProfiling). The code around each lock reports requesting
+ * it, acquiring it and releasing it (and waiting on it, for monitors), and the profiler records the wait and hold
+ * times, the number of waiters and which threads wait. For each contended acquisition it also keeps the stack, so
+ * the stacks can be written in the collapsed format of flame graph tools (e.g. flamegraph.pl).
+ * When profiling is off, every call returns right away.
+ *
+ * Usage around a monitor:
+ * <pre>
+ *     long requested = locks.request(LockProfiler.DEALER_LOCK);
+ *     synchronized (dealerLock) {
+ *         locks.acquired(LockProfiler.DEALER_LOCK, requested);
+ *         ...
+ *         locks.released(LockProfiler.DEALER_LOCK);
+ *     }
+ * </pre>
+ */
+public class LockProfiler {
+
+    /**
+     * The profiled locks. Each player has an AI lock of its own (see aiLock()).
+     */
+    public static final int SLOT_LOCK = 0;
+    public static final int DEALER_LOCK = 1;
+    public static final int DEALER_MONITOR = 2;
+    private static final int AI_LOCK = 3;
+
+    private static final String[] NAMES = {"slotLock", "dealerLock", "dealer", "aiLock"};
+
+    /**
+     * The number of top waiting threads listed per lock in the report.
+     */
+    private static final int TOP_THREADS = 5;
+
+    /**
+     * The number of stack frames kept per contended acquisition.
+     */
+    private static final int MAX_FRAMES = 32;
+
+    private final boolean enabled;
+    private final Lock[] locks;
+    private final Clock clock;
+
+    /**
+     * The time the current thread acquired each lock (for the hold times), followed by whether its last request of
+     * each lock was contended (1 if so).
+     */
+    private final ThreadLocal<long[]> threadState;
+
+    private final Map<String, LongAdder> stacks = new ConcurrentHashMap<>();
+
+    private static class Lock {
+        final String name;
+        final LatencyHistogram wait = new LatencyHistogram();
+        final LatencyHistogram hold = new LatencyHistogram();
+        final LongAdder contended = new LongAdder();
+        final AtomicInteger held = new AtomicInteger();
+        final AtomicInteger waiters = new AtomicInteger();
+        final AtomicInteger maxWaiters = new AtomicInteger();
+        final Map<String, LongAdder> waitByThread = new ConcurrentHashMap<>();
+
+        Lock(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * The class constructor.
+     *
+     * @param enabled - true iff the locks should be profiled.
+     * @param players - the number of players.
+     * @param clock   - the clock to wait on (see await()).
+     */
+    public LockProfiler(boolean enabled, int players, Clock clock) {
+        this.enabled = enabled;
+        this.clock = clock;
+        locks = new Lock[AI_LOCK + players];
+        for (int i = 0; i < locks.length; i++)
+            locks[i] = new Lock(i < AI_LOCK ? NAMES[i] : NAMES[AI_LOCK] + " " + (i - AI_LOCK + 1));
+        threadState = ThreadLocal.withInitial(() -> new long[2 * locks.length]);
+    }
+
+    public LockProfiler(boolean enabled, int players) {
+        this(enabled, players, Clock.SYSTEM);
+    }
+
+    /**
+     * @param player - the id of a player.
+     * @return       - the AI lock of the player.
+     */
+    public static int aiLock(int player) {
+        return AI_LOCK + player;
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * Called right before a thread tries to acquire a lock.
+     *
+     * @param lock - the lock (e.g. SLOT_LOCK).
+     * @return     - the time of the request, to pass to acquired() (0 if profiling is off).
+     */
+    public long request(int lock) {
+        if (!enabled)
+            return 0;
+        Lock l = locks[lock];
+        int waiters = l.waiters.incrementAndGet();
+        int max;
+        while (waiters > (max = l.maxWaiters.get()) && !l.maxWaiters.compareAndSet(max, waiters)) ;
+        threadState.get()[locks.length + lock] = l.held.get() > 0 || waiters > 1 ? 1 : 0;
+        return System.nanoTime();
+    }
+
+    /**
+     * Called right after a thread acquired a lock.
+     *
+     * @param lock      - the lock.
+     * @param requested - the value request() returned.
+     */
+    public void acquired(int lock, long requested) {
+        if (!enabled)
+            return;
+        long now = System.nanoTime();
+        Lock l = locks[lock];
+        l.waiters.decrementAndGet();
+        l.held.incrementAndGet();
+        long[] state = threadState.get();
+        state[lock] = now;
+        long wait = now - requested;
+        l.wait.record(wait);
+        if (state[locks.length + lock] != 0) {
+            l.contended.increment();
+            String thread = Thread.currentThread().getName();
+            l.waitByThread.computeIfAbsent(thread, t -> new LongAdder()).add(wait);
+            stacks.computeIfAbsent(stack(thread, lock), s -> new LongAdder()).add(TimeUnit.NANOSECONDS.toMicros(wait));
+        }
+    }
+
+    /**
+     * Called if a thread stops trying to acquire a lock (e.g. when interrupted).
+     *
+     * @param lock - the lock.
+     */
+    public void cancelled(int lock) {
+        if (enabled)
+            locks[lock].waiters.decrementAndGet();
+    }
+
+    /**
+     * Called right before a thread releases a lock.
+     *
+     * @param lock - the lock.
+     */
+    public void released(int lock) {
+        if (!enabled)
+            return;
+        Lock l = locks[lock];
+        l.held.decrementAndGet();
+        l.hold.record(System.nanoTime() - threadState.get()[lock]);
+    }
+
+    /**
+     * Waits on a monitor the current thread holds. The waiting time counts as neither waiting for the lock nor
+     * holding it. The timeout is measured by the profiler's clock.
+     *
+     * @param lock    - the lock.
+     * @param monitor - the monitor.
+     * @param millis  - the maximum time to wait (0 to wait until notified).
+     * @throws InterruptedException - if interrupted while waiting.
+     */
+    public void await(int lock, Object monitor, long millis) throws InterruptedException {
+        released(lock);
+        try {
+            clock.await(monitor, millis);
+        } finally {
+            if (enabled) {
+                locks[lock].held.incrementAndGet();
+                threadState.get()[lock] = System.nanoTime();
+            }
+        }
+    }
+
+    private static String stack(String thread, int lock) {
+        String name = NAMES[Math.min(lock, AI_LOCK)];
+        List<String> frames = StackWalker.getInstance().walk(s -> s
+                .skip(2) // stack() and acquired()
+                .limit(MAX_FRAMES)
+                .map(f -> f.getClassName().substring(f.getClassName().lastIndexOf('.') + 1) + "." + f.getMethodName())
+                .collect(Collectors.toList()));
+        Collections.reverse(frames);
+        return thread.replaceAll("[ 0-9-]+$", "") + ";" + String.join(";", frames) + ";[" + name + "]";
+    }
+
+    /**
+     * Logs a contention summary of each lock: acquisitions, contended acquisitions, the maximum number of waiters,
+     * the wait and hold times and the threads that waited the longest.
+     *
+     * @param logger - the logger object.
+     */
+    public void report(Logger logger) {
+        if (!enabled)
+            return;
+        StringBuilder report = new StringBuilder("lock contention:");
+        for (int lock = 0; lock < locks.length; lock++) {
+            Lock l = locks[lock];
+            long acquisitions = l.wait.count();
+            if (acquisitions == 0)
+                continue;
+            report.append(System.lineSeparator()).append(String.format("  %s: %d acquisitions, %d contended (%.1f%%), max waiters %d",
+                    l.name, acquisitions, l.contended.sum(), 100.0 * l.contended.sum() / acquisitions, l.maxWaiters.get()));
+            report.append(System.lineSeparator()).append("    wait ").append(l.wait.summary());
+            report.append(System.lineSeparator()).append("    hold ").append(l.hold.summary());
+            List<Map.Entry<String, LongAdder>> threads = new ArrayList<>(l.waitByThread.entrySet());
+            threads.sort(Comparator.comparingLong((Map.Entry<String, LongAdder> e) -> e.getValue().sum()).reversed());
+            if (!threads.isEmpty())
+                report.append(System.lineSeparator()).append("    most waiting: ").append(threads.stream().limit(TOP_THREADS)
+                        .map(e -> String.format("%s %.3fms", e.getKey(), e.getValue().sum() / 1e6))
+                        .collect(Collectors.joining(", ")));
+        }
+        logger.info(report.toString());
+    }
+
+    /**
+     * Writes the stacks of the contended acquisitions in the collapsed format (one "frame;frame;... weight" line
+     * per stack), weighted by the wait time in microseconds. Threads of the same kind (e.g. player 1 and player 2)
+     * share their stacks.
+     *
+     * @param file - the file to write.
+     * @throws IOException - if the file cannot be written.
+     */
+    public void writeStacks(Path file) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+            stacks.forEach((stack, weight) -> out.println(stack + " " + weight.sum()));
+        }
+    }
+}
@@ -6,6 +6,9 @@ import bguspl.set.ex.Table;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Calendar;
@@ -22,6 +25,7 @@ public class Main {
 
     private static boolean xButtonPressed = false;
     private static Logger logger;
+    private static GameEventLog events;
 
     public static void xButtonPressed() throws InterruptedException {
         if (logger != null) logger.severe("exit button pressed");
@@ -40,58 +44,89 @@ public class Main {
         mainThread = Thread.currentThread();
 
         // create the game environment objects
-        logger = initLogger();
+        //just to make our log file nicer :)
+        String logName = "./logs/" + new SimpleDateFormat("M-d_HH-mm-ss").format(Calendar.getInstance().getTime());
+        logger = initLogger(logName);
         ThreadLogger.logStart(logger, Thread.currentThread().getName());
         Config config = new Config(logger, "config.properties");
+        logger.info("random seed: " + config.seed + (config.seeded ? "" : " (set Seed=" + config.seed + " to play this game again)"));
+        events = initEventLog(logName, config);
+        ConfigWatcher configWatcher = initConfigWatcher(config, Paths.get("config.properties"));
         Util util = new UtilImpl(config);
 
+        GameMetrics metrics = new GameMetrics(config.players, config.tableSize);
+        metrics.register(logger);
+
         Player[] players = new Player[config.players];
+        Clock clock = Clock.SYSTEM;
         UserInterface ui = null;
         try {
-            ui = new UserInterfaceSwing(logger, config, players);
+            ui = new UserInterfaceSwing(logger, config, util, players, metrics.input, clock);
         } catch (UnsupportedOperationException | IllegalArgumentException e) {
             logger.severe("error creating swing user interface: " + e.getMessage());
             logger.severe("will try to run without user interface");
             if (config.humanPlayers > 0)
                 logger.severe("warning: running with human players with no user interface");
         }
-        ui = new UserInterfaceDecorator(logger, util, ui);
+        UserInterface spectators = null;
+        if (config.spectatorPort > 0) {
+            try {
+                spectators = new UserInterfaceNetwork(logger, config, config.spectatorPort);
+            } catch (IOException e) {
+                logger.severe("error creating spectator user interface: " + e);
+            }
+        }
+        ui = new UserInterfaceDecorator(logger, util, events, ui, spectators);
 
-        Env env = new Env(logger, config, ui, util);
+        Env env = new Env(logger, config, ui, util, events, metrics, clock);
 
         // create the game entities
         Table table = new Table(env);
         dealer = new Dealer(env, table, players);
         for (int i = 0; i < players.length; i++)
             players[i] = new Player(env, dealer, table, i, i < env.config.humanPlayers);
+        RemoteInputServer remoteInput = null;
+        if (config.remoteInputPort > 0) {
+            try {
+                remoteInput = new RemoteInputServer(logger, config, players, config.remoteInputPort);
+            } catch (IOException e) {
+                logger.severe("error creating remote input server: " + e);
+            }
+        }
 
         // start the dealer thread
-        ThreadLogger dealerThread = new ThreadLogger(dealer, "dealer", logger);
+        ThreadLogger dealerThread = new ThreadLogger(dealer, "dealer", logger, env.threads);
         dealerThread.startWithLog();
+        env.threads.startReports(logger, config.threadReportMillis);
 
         try {
             // shutdown stuff
             dealerThread.joinWithLog();
+            env.threads.report(logger, "thread usage at the end of the game:");
+            writeLockProfile(env, logName);
             if (!xButtonPressed && config.endGamePauseMillies > 0) Thread.sleep(config.endGamePauseMillies);
         } catch (InterruptedException ignored) {
         } finally {
             logger.severe("thanks for playing... it was fun!");
             System.out.println("Thanks for playing... it was fun!");
             ThreadLogger.logStop(logger, Thread.currentThread().getName());
+            env.threads.stopReports();
+            if (configWatcher != null) configWatcher.close();
+            if (remoteInput != null) remoteInput.close();
             if (!xButtonPressed) env.ui.dispose();
+            if (events != null) events.close();
+            metrics.unregister();
             for (Handler h : logger.getHandlers()) h.flush();
         }
     }
 
-    private static Logger initLogger() {
+    private static Logger initLogger(String logName) {
 
-        //just to make our log file nicer :)
-        SimpleDateFormat format = new SimpleDateFormat("M-d_HH-mm-ss");
         FileHandler handler;
         try {
             //noinspection ResultOfMethodCallIgnored
             new File("./logs/").mkdirs();
-            handler = new FileHandler("./logs/" + format.format(Calendar.getInstance().getTime()) + ".log");
+            handler = new FileHandler(logName + ".log");
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -104,6 +139,45 @@ public class Main {
         return logger;
     }
 
+    /**
+     * Starts watching the configuration file for changes, unless disabled or the configuration did not come from a
+     * file in the working directory.
+     */
+    private static ConfigWatcher initConfigWatcher(Config config, Path file) {
+        if (!config.reloadConfig || !Files.isRegularFile(file))
+            return null;
+        try {
+            ConfigWatcher watcher = new ConfigWatcher(logger, config, file);
+            watcher.start();
+            return watcher;
+        } catch (IOException e) {
+            logger.severe("error watching the configuration file: " + e);
+            return null;
+        }
+    }
+
+    private static void writeLockProfile(Env env, String logName) {
+        if (!env.locks.enabled())
+            return;
+        env.locks.report(logger);
+        try {
+            env.locks.writeStacks(Paths.get(logName + ".locks"));
+        } catch (IOException e) {
+            logger.severe("error writing the lock profile: " + e);
+        }
+    }
+
+    private static GameEventLog initEventLog(String logName, Config config) {
+        if (config.eventLogCapacity <= 0)
+            return null;
+        try {
+            return new GameEventLog(logger, Paths.get(logName + ".events"), config.eventLogCapacity);
+        } catch (IOException e) {
+            logger.severe("error creating the event log: " + e);
+            return null;
+        }
+    }
+
     public static void setLoggerLevelAndFormat(Logger logger, Level level, String format) {
         Handler[] handlers = logger.getHandlers();
         if (handlers != null) Arrays.stream(handlers).forEach(h -> h.setFormatter(new SimpleFormatter() {
@@ -0,0 +1,182 @@
+package bguspl.set;
+
+import bguspl.set.ex.Player;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Accepts key presses from remote clients (see RemoteInputSwarm), for any player, over TCP.
+ * Protocol: a client sends a stream of FRAME_SIZE byte press frames, each holding the player id and the slot as big
+ * endian shorts. A press is stamped with the time its frame was read and passed to Player::keyPressed, exactly like
+ * a press on the local keyboard (see InputManager). A client sending an invalid frame is disconnected.
+ * A single selector thread serves all the clients.
+ */
+public class RemoteInputServer {
+
+    public static final int FRAME_SIZE = 4;
+
+    private static final int BACKLOG = 256;
+    private static final int READ_BUFFER_SIZE = 4096;
+
+    private final Logger logger;
+    private final Config config;
+    private final Player[] players;
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final Thread thread;
+    private volatile boolean closed;
+
+    private final LongAdder presses = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * The class constructor. Starts the selector thread.
+     *
+     * @param logger  - the logger object.
+     * @param config  - the game configuration.
+     * @param players - the players to pass the presses to.
+     * @param port    - the TCP port to listen on (0 for any free port, see port()).
+     * @throws IOException - if the port cannot be bound.
+     */
+    public RemoteInputServer(Logger logger, Config config, Player[] players, int port) throws IOException {
+        this.logger = logger;
+        this.config = config;
+        this.players = players;
+
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port), BACKLOG);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+
+        thread = new Thread(this::run, "remote-input");
+        thread.setDaemon(true);
+        thread.start();
+        logger.info("remote players can connect on port " + port());
+    }
+
+    /**
+     * @return - the TCP port remote clients connect to.
+     */
+    public int port() {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * @return - the number of presses passed to the players.
+     */
+    public long presses() {
+        return presses.sum();
+    }
+
+    /**
+     * @return - the number of invalid frames received (each disconnected its client).
+     */
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * Disconnects all the clients and stops listening.
+     */
+    public void close() {
+        closed = true;
+        selector.wakeup();
+        try {
+            thread.join();
+        } catch (InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+        }
+        logger.info("remote input: " + presses() + " presses, " + rejected() + " invalid frames");
+    }
+
+    /**
+     * The selector thread starts here.
+     */
+    private void run() {
+        try {
+            while (!closed) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid())
+                        continue;
+                    if (key.isAcceptable())
+                        while (accept()) ;
+                    else if (key.isReadable())
+                        read(key);
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            logger.severe("remote input server failed: " + e);
+        } finally {
+            for (SelectionKey key : selector.keys())
+                close(key);
+            try {
+                selector.close();
+            } catch (IOException ignored) {}
+        }
+    }
+
+    private boolean accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null)
+            return false;
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        channel.register(selector, SelectionKey.OP_READ, ByteBuffer.allocate(READ_BUFFER_SIZE));
+        return true;
+    }
+
+    /**
+     * Reads the frames a client sent and passes the presses to the players.
+     */
+    private void read(SelectionKey key) {
+        SocketChannel channel = (SocketChannel) key.channel();
+        ByteBuffer buffer = (ByteBuffer) key.attachment();
+        try {
+            if (channel.read(buffer) < 0) {
+                close(key);
+                return;
+            }
+        } catch (IOException e) {
+            close(key);
+            return;
+        }
+        long readNanos = System.nanoTime();
+        buffer.flip();
+        while (buffer.remaining() >= FRAME_SIZE) {
+            int player = buffer.getShort();
+            int slot = buffer.getShort();
+            if (player < 0 || player >= players.length || slot < 0 || slot >= config.tableSize) {
+                rejected.increment();
+                logger.warning("disconnecting remote client " + channel.socket().getRemoteSocketAddress()
+                        + ": invalid press of player " + player + " on slot " + slot);
+                close(key);
+                return;
+            }
+            players[player].keyPressed(slot, readNanos);
+            presses.increment();
+        }
+        buffer.compact();
+    }
+
+    private void close(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException ignored) {}
+    }
+}
@@ -0,0 +1,85 @@
+package bguspl.set;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A load test client for a RemoteInputServer: many connections, driven by one thread, each pressing random slots
+ * for its own player at a fixed rate.
+ * Usage: RemoteInputSwarm host port clients players slots [pressesPerSecond] [seconds]. Client i presses for player
+ * i % players.
+ */
+public class RemoteInputSwarm {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+
+        if (args.length < 5) {
+            System.out.println("usage: RemoteInputSwarm host port clients players slots [pressesPerSecond] [seconds]");
+            return;
+        }
+        InetSocketAddress address = new InetSocketAddress(args[0], Integer.parseInt(args[1]));
+        int clients = Integer.parseInt(args[2]);
+        int players = Integer.parseInt(args[3]);
+        int slots = Integer.parseInt(args[4]);
+        double rate = args.length > 5 ? Double.parseDouble(args[5]) : 10;
+        long seconds = args.length > 6 ? Long.parseLong(args[6]) : 10;
+
+        SocketChannel[] channels = new SocketChannel[clients];
+        for (int i = 0; i < clients; i++) {
+            channels[i] = connect(address);
+            channels[i].socket().setTcpNoDelay(true);
+        }
+
+        long period = (long) (1_000_000_000L / rate);
+        long start = System.nanoTime();
+        long end = start + seconds * 1_000_000_000L;
+        long[] due = new long[clients];
+        for (int i = 0; i < clients; i++)
+            due[i] = start + ThreadLocalRandom.current().nextLong(period); // spread the clients over a period
+        ByteBuffer frame = ByteBuffer.allocate(RemoteInputServer.FRAME_SIZE);
+        long sent = 0;
+        while (System.nanoTime() < end) {
+            long now = System.nanoTime();
+            long next = end;
+            for (int i = 0; i < clients; i++) {
+                if (due[i] <= now) {
+                    frame.clear();
+                    frame.putShort((short) (i % players)).putShort((short) ThreadLocalRandom.current().nextInt(slots));
+                    frame.flip();
+                    while (frame.hasRemaining())
+                        channels[i].write(frame);
+                    sent++;
+                    due[i] += period;
+                }
+                next = Math.min(next, due[i]);
+            }
+            long wait = next - System.nanoTime();
+            if (wait > 0)
+                Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+        }
+        for (SocketChannel channel : channels)
+            channel.close();
+        long nanos = System.nanoTime() - start;
+        System.out.println("sent " + sent + " presses from " + clients + " clients in " + nanos / 1_000_000 + "ms ("
+                + sent * 1_000_000_000L / nanos + " presses/s)");
+    }
+
+    /**
+     * Connects to the server, waiting up to 10 seconds for it to start.
+     */
+    private static SocketChannel connect(InetSocketAddress address) throws IOException, InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return SocketChannel.open(address);
+            } catch (ConnectException e) {
+                if (attempt == 100)
+                    throw e;
+                Thread.sleep(100);
+            }
+        }
+    }
+}
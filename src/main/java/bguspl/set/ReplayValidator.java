@@ -0,0 +1,206 @@
+package bguspl.set;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static bguspl.set.GameEventLog.*;
+
+/**
+ * Rebuilds the state of a game from its journal (see GameReplay) without a user interface, and checks the game
+ * rules on the way: cards are only placed in empty slots and are never on the table twice, tokens are only placed
+ * on cards and a player never has more than FeatureSize of them, a point is only given for a claimed set that is
+ * on the table, a penalty only for a claim that is not a set, and a score only grows by a point given.
+ * The rebuilt state cannot be trusted after events were dropped while recording (a DROPPED event), so the game is
+ * only verified up to the first DROPPED event, and the report says so.
+ */
+public class ReplayValidator implements GameEventLog.Visitor {
+
+    private static final int NO_CARD = -1;
+
+    /**
+     * The maximum number of violations kept for the report.
+     */
+    private static final int MAX_REPORTED = 20;
+
+    private final Config config;
+    private final Util util;
+
+    private final int[] slotToCard;
+    private final boolean[][] tokens;
+    private final int[] tokenCount;
+    private final int[] score;
+    private final int[] unpaidPoints;
+    private final int[][] claimSlots;
+    private final int[][] claimCards;
+    private final int[] claimSize;
+
+    private final List<String> violations = new ArrayList<>();
+    private long violationCount;
+    private long events;
+    private long points;
+    private long penalties;
+
+    /**
+     * The number of events dropped while recording, and the number of events before the first drop (the events
+     * verified).
+     */
+    private long dropped;
+    private long verified;
+
+    public ReplayValidator(Config config, Util util) {
+        this.config = config;
+        this.util = util;
+        slotToCard = new int[config.tableSize];
+        Arrays.fill(slotToCard, NO_CARD);
+        tokens = new boolean[config.players][config.tableSize];
+        tokenCount = new int[config.players];
+        score = new int[config.players];
+        unpaidPoints = new int[config.players];
+        claimSlots = new int[config.players][config.featureSize];
+        claimCards = new int[config.players][config.featureSize];
+        claimSize = new int[config.players];
+    }
+
+    @Override
+    public void event(int type, int player, int slot, long value, long nanos) {
+        events++;
+        if (type == DROPPED) {
+            if (dropped == 0)
+                verified = events - 1;
+            dropped += value;
+        }
+        if (dropped > 0)
+            return;
+        switch (type) {
+            case CARD_PLACED:
+                if (slotToCard[slot] != NO_CARD)
+                    violation("card " + value + " placed on card " + slotToCard[slot] + " in slot " + slot);
+                for (int other = 0; other < slotToCard.length; other++)
+                    if (slotToCard[other] == value && other != slot)
+                        violation("card " + value + " placed in slot " + slot + " is also in slot " + other);
+                slotToCard[slot] = (int) value;
+                break;
+            case CARD_REMOVED:
+                if (slotToCard[slot] == NO_CARD)
+                    violation("card removed from empty slot " + slot);
+                slotToCard[slot] = NO_CARD;
+                removeTokens(slot);
+                break;
+            case TOKEN_PLACED:
+                if (slotToCard[slot] == NO_CARD)
+                    violation("player " + (player + 1) + " placed a token on empty slot " + slot);
+                if (!tokens[player][slot]) {
+                    tokens[player][slot] = true;
+                    if (++tokenCount[player] > config.featureSize)
+                        violation("player " + (player + 1) + " has " + tokenCount[player] + " tokens");
+                }
+                break;
+            case TOKEN_REMOVED:
+                if (tokens[player][slot]) {
+                    tokens[player][slot] = false;
+                    tokenCount[player]--;
+                }
+                break;
+            case TOKENS_REMOVED:
+                if (slot == NONE)
+                    for (int s = 0; s < config.tableSize; s++)
+                        removeTokens(s);
+                else
+                    removeTokens(slot);
+                break;
+            case CLAIM:
+                if (claimSize[player] == config.featureSize)
+                    violation("player " + (player + 1) + " claimed more than " + config.featureSize + " cards");
+                else {
+                    claimSlots[player][claimSize[player]] = slot;
+                    claimCards[player][claimSize[player]++] = (int) value;
+                }
+                break;
+            case VERDICT:
+                verdict(player, (int) value);
+                break;
+            case SCORE:
+                if (value != score[player]) {
+                    if (value != score[player] + 1 || unpaidPoints[player] == 0)
+                        violation("player " + (player + 1) + " score changed from " + score[player] + " to " + value);
+                    else
+                        unpaidPoints[player]--;
+                    score[player] = (int) value;
+                }
+                break;
+            default: // timer, freeze and winner events do not change the table
+        }
+    }
+
+    private void verdict(int player, int verdict) {
+        int size = claimSize[player];
+        claimSize[player] = 0;
+        if (verdict == 0)
+            return;
+        int[] cards = Arrays.copyOf(claimCards[player], size);
+        boolean onTable = true;
+        for (int i = 0; i < size; i++)
+            onTable &= slotToCard[claimSlots[player][i]] == cards[i];
+        boolean isSet = size == config.featureSize && util.testSet(cards);
+        if (verdict == 1) {
+            points++;
+            unpaidPoints[player]++;
+            if (!onTable || !isSet)
+                violation("player " + (player + 1) + " got a point for " + Arrays.toString(cards)
+                        + (onTable ? " which is not a set" : " which is not on the table"));
+        }
+        else {
+            penalties++;
+            if (isSet && onTable)
+                violation("player " + (player + 1) + " got a penalty for the set " + Arrays.toString(cards));
+        }
+    }
+
+    private void removeTokens(int slot) {
+        for (int player = 0; player < tokens.length; player++) {
+            if (tokens[player][slot]) {
+                tokens[player][slot] = false;
+                tokenCount[player]--;
+            }
+        }
+    }
+
+    private void violation(String message) {
+        if (violationCount++ < MAX_REPORTED)
+            violations.add("event " + events + ": " + message);
+    }
+
+    /**
+     * @return - the number of events dropped while recording (the game is not verified past the first drop).
+     */
+    public long dropped() {
+        return dropped;
+    }
+
+    /**
+     * @return - the number of rule violations found.
+     */
+    public long violations() {
+        return violationCount;
+    }
+
+    /**
+     * @return - a summary of the replayed game, including the first violations found.
+     */
+    public String report() {
+        StringBuilder report = new StringBuilder()
+                .append(events).append(" events, ").append(points).append(" points, ").append(penalties)
+                .append(" penalties, scores ").append(Arrays.toString(score)).append(", ")
+                .append(violationCount).append(" violations");
+        if (dropped > 0)
+            report.append(System.lineSeparator()).append("  ").append(dropped)
+                    .append(" events were dropped while recording, so only the first ").append(verified)
+                    .append(" events were verified");
+        for (String violation : violations)
+            report.append(System.lineSeparator()).append("  ").append(violation);
+        if (violationCount > violations.size())
+            report.append(System.lineSeparator()).append("  ...");
+        return report.toString();
+    }
+}
@@ -0,0 +1,65 @@
+package bguspl.set;
+
+import bguspl.set.ex.Player;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.logging.Logger;
+
+/**
+ * Watches a game streamed by a UserInterfaceNetwork on a Swing user interface.
+ * Usage: SpectatorClient host port. The client uses config.properties, which must match the configuration of the
+ * watched game.
+ */
+public class SpectatorClient {
+
+    /**
+     * Reads a spectator stream until it ends.
+     *
+     * @param socket  - a socket connected to a UserInterfaceNetwork.
+     * @param visitor - receives the streamed events.
+     * @return        - the number of events read.
+     * @throws IOException - if the stream cannot be read or is not a spectator stream.
+     */
+    public static long watch(Socket socket, GameEventLog.Visitor visitor) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        if (in.readLong() != UserInterfaceNetwork.MAGIC)
+            throw new IOException("not a spectator stream");
+        long count = 0;
+        while (true) {
+            int type;
+            try {
+                type = in.readByte();
+            } catch (EOFException e) {
+                return count;
+            }
+            visitor.event(type, in.readShort(), in.readShort(), in.readLong(), in.readLong());
+            count++;
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+
+        if (args.length < 2) {
+            System.out.println("usage: SpectatorClient host port");
+            return;
+        }
+        Logger logger = Logger.getLogger("SetGameSpectator");
+        Config config = new Config(logger, "config.properties");
+        Util util = new UtilImpl(config);
+        UserInterfaceSwing ui = new UserInterfaceSwing(logger, config, util, new Player[0]);
+        GameReplay.UserInterfaceTarget target = new GameReplay.UserInterfaceTarget(ui, true);
+
+        try (Socket socket = new Socket(args[0], Integer.parseInt(args[1]))) {
+            socket.setTcpNoDelay(true);
+            long events = watch(socket, target);
+            target.announceWinners();
+            System.out.println("watched " + events + " events");
+        }
+        Thread.sleep(config.endGamePauseMillies);
+        ui.dispose();
+    }
+}
@@ -0,0 +1,23 @@
+package bguspl.set;
+
+/**
+ * The clock of a real game (see Clock::SYSTEM).
+ */
+public class SystemClock implements Clock {
+
+    @Override
+    public long millis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public void sleep(long millis) throws InterruptedException {
+        if (millis > 0)
+            Thread.sleep(millis);
+    }
+
+    @Override
+    public void await(Object monitor, long millis) throws InterruptedException {
+        monitor.wait(millis);
+    }
+}
@@ -0,0 +1,145 @@
+package bguspl.set;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Logger;
+
+/**
+ * Accounts for the CPU time and the allocated bytes of the game threads (see ThreadLogger), as measured by the
+ * platform ThreadMXBean. Live threads are sampled on demand; a thread samples itself right before it terminates,
+ * as a terminated thread can no longer be measured.
+ * Reports list each thread with its totals and, for periodic reports, the change since the previous report.
+ */
+public class ThreadAccounting {
+
+    private static final double MILLION = 1_000_000.0;
+
+    private final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+    /**
+     * The HotSpot extension of the ThreadMXBean that measures allocations (null if not supported).
+     */
+    private final com.sun.management.ThreadMXBean allocations;
+
+    private final List<ThreadLogger> threads = new CopyOnWriteArrayList<>();
+
+    /**
+     * The totals of each thread at the previous report (guarded by this).
+     */
+    private final Map<ThreadLogger, long[]> previous = new HashMap<>();
+
+    private Thread reporter;
+
+    public ThreadAccounting() {
+        if (bean.isThreadCpuTimeSupported() && !bean.isThreadCpuTimeEnabled())
+            bean.setThreadCpuTimeEnabled(true);
+        com.sun.management.ThreadMXBean extended = null;
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            extended = (com.sun.management.ThreadMXBean) bean;
+            if (extended.isThreadAllocatedMemorySupported() && !extended.isThreadAllocatedMemoryEnabled())
+                extended.setThreadAllocatedMemoryEnabled(true);
+            if (!extended.isThreadAllocatedMemoryEnabled())
+                extended = null;
+        }
+        allocations = extended;
+    }
+
+    /**
+     * @param thread - a game thread to account for.
+     */
+    void register(ThreadLogger thread) {
+        threads.add(thread);
+    }
+
+    /**
+     * Called by a thread right before it terminates, to keep its final totals.
+     *
+     * @param thread - the current thread.
+     */
+    void finished(ThreadLogger thread) {
+        thread.finalCpuNanos = bean.isThreadCpuTimeEnabled() ? bean.getCurrentThreadCpuTime() : -1;
+        thread.finalAllocatedBytes = allocations != null ? allocations.getThreadAllocatedBytes(thread.getId()) : -1;
+    }
+
+    /**
+     * @param thread - a game thread.
+     * @return       - the CPU time the thread used so far in nanoseconds (-1 if unknown).
+     */
+    public long cpuNanos(ThreadLogger thread) {
+        if (thread.finalCpuNanos != -1 || !thread.isAlive())
+            return thread.finalCpuNanos;
+        return bean.isThreadCpuTimeEnabled() ? bean.getThreadCpuTime(thread.getId()) : -1;
+    }
+
+    /**
+     * @param thread - a game thread.
+     * @return       - the number of bytes the thread allocated so far (-1 if unknown).
+     */
+    public long allocatedBytes(ThreadLogger thread) {
+        if (thread.finalAllocatedBytes != -1 || !thread.isAlive())
+            return thread.finalAllocatedBytes;
+        return allocations != null ? allocations.getThreadAllocatedBytes(thread.getId()) : -1;
+    }
+
+    /**
+     * @return - the game threads accounted for.
+     */
+    public List<ThreadLogger> threads() {
+        return threads;
+    }
+
+    /**
+     * Logs the totals of each game thread, and their change since the previous report.
+     *
+     * @param logger - the logger object.
+     * @param title  - the title of the report.
+     */
+    public synchronized void report(Logger logger, String title) {
+        StringBuilder report = new StringBuilder(title);
+        for (ThreadLogger thread : threads) {
+            long cpu = cpuNanos(thread);
+            long allocated = allocatedBytes(thread);
+            long[] before = previous.getOrDefault(thread, new long[]{0, 0});
+            report.append(System.lineSeparator()).append(String.format("  %-12s %-13s cpu %9.1fms (+%.1fms)  allocated %9.2fMB (+%.2fMB)",
+                    thread.getName(), thread.isAlive() ? thread.getState() : "TERMINATED",
+                    cpu / MILLION, Math.max(0, cpu - before[0]) / MILLION,
+                    allocated / MILLION, Math.max(0, allocated - before[1]) / MILLION));
+            previous.put(thread, new long[]{cpu, allocated});
+        }
+        logger.info(report.toString());
+    }
+
+    /**
+     * Starts reporting periodically, on a daemon thread.
+     *
+     * @param logger       - the logger object.
+     * @param periodMillis - the time between reports (no reports if not positive).
+     */
+    public synchronized void startReports(Logger logger, long periodMillis) {
+        if (periodMillis <= 0 || reporter != null)
+            return;
+        reporter = new Thread(() -> {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    Thread.sleep(periodMillis);
+                    report(logger, "thread usage:");
+                }
+            } catch (InterruptedException ignored) {}
+        }, "thread-accounting");
+        reporter.setDaemon(true);
+        reporter.start();
+    }
+
+    /**
+     * Stops the periodic reports.
+     */
+    public synchronized void stopReports() {
+        if (reporter != null)
+            reporter.interrupt();
+        reporter = null;
+    }
+}
@@ -6,9 +6,43 @@ public class ThreadLogger extends Thread {
 
     final Logger logger;
 
+    /**
+     * The accounting the thread is registered with (null if none).
+     */
+    private final ThreadAccounting accounting;
+
+    /**
+     * The CPU time and allocated bytes of the thread when it terminated (-1 until then, see ThreadAccounting).
+     */
+    volatile long finalCpuNanos = -1;
+    volatile long finalAllocatedBytes = -1;
+
     public ThreadLogger(Runnable target, String name, Logger logger) {
+        this(target, name, logger, null);
+    }
+
+    /**
+     * @param target     - the runnable the thread runs.
+     * @param name       - the name of the thread.
+     * @param logger     - the logger object.
+     * @param accounting - the accounting of the thread's CPU time and allocations (null for none).
+     */
+    public ThreadLogger(Runnable target, String name, Logger logger, ThreadAccounting accounting) {
         super(target, name);
         this.logger = logger;
+        this.accounting = accounting;
+        if (accounting != null)
+            accounting.register(this);
+    }
+
+    @Override
+    public void run() {
+        try {
+            super.run();
+        } finally {
+            if (accounting != null)
+                accounting.finished(this);
+        }
     }
 
     public void startWithLog() {
@@ -0,0 +1,243 @@
+package bguspl.set;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A coalescing queue of user interface commands.
+ * Game threads post commands without blocking: each command only stores the latest requested state of the element
+ * it changes (a slot's card, a slot's tokens, the timer, a player's freeze or score) and marks it dirty.
+ * A single consumer then applies the dirty elements to the real user interface once per frame, so a burst of
+ * commands on the same element costs one update and rendering never runs inside a game thread critical section.
+ * A started timer is not posted at all after it starts: each flush derives the time to show from the start time, so
+ * the clock is redrawn at the display rate without any game thread waking up for it.
+ * The commands are those of UserInterface that change an element. Announcing the winner and disposing are not
+ * queued: the user interface applies them on its own thread, after flushing the pending commands.
+ */
+public class UiCommandQueue {
+
+    /**
+     * The element updates a flush applies, as in UserInterface. A running timer is applied as countdown (or elapsed
+     * time) updates, so there is no startTimer here.
+     */
+    public interface Display {
+        void placeCard(int card, int slot);
+        void removeCard(int slot);
+        void placeToken(int player, int slot);
+        void removeToken(int player, int slot);
+        void setCountdown(long millies, boolean warn);
+        void setElapsed(long millies);
+        void setFreeze(int player, long millies);
+        void setScore(int player, int score);
+    }
+
+    private static final int NO_CARD = -1;
+    private static final long NO_TIMER = -1;
+    private static final long NO_FREEZE = Long.MIN_VALUE;
+    private static final int NO_SCORE = -1;
+
+    /**
+     * Timer commands are packed as (millies << 2) | (warn << 1) | elapsed.
+     */
+    private static final long TIMER_WARN = 2;
+    private static final long TIMER_ELAPSED = 1;
+
+    private final int players;
+    private final int tableSize;
+
+    /**
+     * The configuration, for the current turn timeout and warning (see Config::timing).
+     */
+    private final Config config;
+
+    /**
+     * The time source of the running timer (the game's clock, see Env::clock).
+     */
+    private final Clock clock;
+
+    private final AtomicIntegerArray cards;
+    private final AtomicIntegerArray cardDirty;
+    private final AtomicIntegerArray tokens;
+    private final AtomicIntegerArray tokensDirty;
+    private final AtomicLong timer = new AtomicLong(NO_TIMER);
+
+    /**
+     * The time the running timer started at (NO_TIMER if there is no running timer).
+     */
+    private final AtomicLong timerStart = new AtomicLong(NO_TIMER);
+
+    /**
+     * The last timer command applied from the running timer (packed as the timer commands). Consumer only.
+     */
+    private long shownTimer = NO_TIMER;
+    private final AtomicLongArray freeze;
+    private final AtomicIntegerArray score;
+
+    /**
+     * True iff there may be dirty elements to apply.
+     */
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    /**
+     * The class constructor.
+     *
+     * @param config - the game configuration.
+     * @param clock  - the clock the game's timer starts by.
+     */
+    public UiCommandQueue(Config config, Clock clock) {
+        players = config.players;
+        tableSize = config.tableSize;
+        this.config = config;
+        this.clock = clock;
+        cards = new AtomicIntegerArray(tableSize);
+        for (int slot = 0; slot < tableSize; slot++)
+            cards.set(slot, NO_CARD);
+        cardDirty = new AtomicIntegerArray(tableSize);
+        tokens = new AtomicIntegerArray(tableSize * players);
+        tokensDirty = new AtomicIntegerArray(tableSize);
+        freeze = new AtomicLongArray(players);
+        score = new AtomicIntegerArray(players);
+        for (int player = 0; player < players; player++) {
+            freeze.set(player, NO_FREEZE);
+            score.set(player, NO_SCORE);
+        }
+    }
+
+    public void placeCard(int card, int slot) {
+        cards.set(slot, card);
+        cardDirty.set(slot, 1);
+        dirty.set(true);
+    }
+
+    public void removeCard(int slot) {
+        placeCard(NO_CARD, slot);
+    }
+
+    public void placeToken(int player, int slot) {
+        tokens.set(slot * players + player, 1);
+        tokensDirty.set(slot, 1);
+        dirty.set(true);
+    }
+
+    public void removeTokens() {
+        for (int slot = 0; slot < tableSize; slot++)
+            removeTokens(slot);
+    }
+
+    public void removeTokens(int slot) {
+        for (int player = 0; player < players; player++)
+            tokens.set(slot * players + player, 0);
+        tokensDirty.set(slot, 1);
+        dirty.set(true);
+    }
+
+    public void removeToken(int player, int slot) {
+        tokens.set(slot * players + player, 0);
+        tokensDirty.set(slot, 1);
+        dirty.set(true);
+    }
+
+    public void setCountdown(long millies, boolean warn) {
+        timerStart.set(NO_TIMER);
+        timer.set((Math.max(0, millies) << 2) | (warn ? TIMER_WARN : 0));
+        dirty.set(true);
+    }
+
+    public void setElapsed(long millies) {
+        timerStart.set(NO_TIMER);
+        timer.set((Math.max(0, millies) << 2) | TIMER_ELAPSED);
+        dirty.set(true);
+    }
+
+    public void startTimer(long startMillis) {
+        timer.set(NO_TIMER);
+        timerStart.set(startMillis);
+        dirty.set(true);
+    }
+
+    public void setFreeze(int player, long millies) {
+        freeze.set(player, millies);
+        dirty.set(true);
+    }
+
+    public void setScore(int player, int score) {
+        this.score.set(player, score);
+        dirty.set(true);
+    }
+
+    /**
+     * Applies all the dirty elements to the given user interface. Called by the single consumer only.
+     *
+     * @param ui - the user interface to apply the commands to.
+     */
+    public void flush(Display ui) {
+        if (!dirty.getAndSet(false)) {
+            long start = timerStart.get();
+            if (start != NO_TIMER)
+                applyRunningTimer(ui, start);
+            return;
+        }
+
+        for (int slot = 0; slot < tableSize; slot++) {
+            if (cardDirty.get(slot) != 0 && cardDirty.getAndSet(slot, 0) != 0) {
+                int card = cards.get(slot);
+                if (card == NO_CARD) ui.removeCard(slot);
+                else ui.placeCard(card, slot);
+            }
+            if (tokensDirty.get(slot) != 0 && tokensDirty.getAndSet(slot, 0) != 0) {
+                for (int player = 0; player < players; player++) {
+                    if (tokens.get(slot * players + player) != 0) ui.placeToken(player, slot);
+                    else ui.removeToken(player, slot);
+                }
+            }
+        }
+
+        long command = timer.getAndSet(NO_TIMER);
+        if (command != NO_TIMER) {
+            shownTimer = NO_TIMER;
+            applyTimer(ui, command);
+        }
+        long start = timerStart.get();
+        if (start != NO_TIMER)
+            applyRunningTimer(ui, start);
+
+        for (int player = 0; player < players; player++) {
+            long millies = freeze.getAndSet(player, NO_FREEZE);
+            if (millies != NO_FREEZE) ui.setFreeze(player, millies);
+            int points = score.getAndSet(player, NO_SCORE);
+            if (points != NO_SCORE) ui.setScore(player, points);
+        }
+    }
+
+    /**
+     * Applies the time the running timer shows now, unless it is already shown.
+     *
+     * @param ui    - the user interface to apply the timer to.
+     * @param start - the time the running timer started at.
+     */
+    private void applyRunningTimer(Display ui, long start) {
+        long passed = Math.max(0, clock.millis() - start);
+        Config.Timing timing = config.timing();
+        long command;
+        if (timing.turnTimeoutMillis > 0) {
+            long left = Math.max(0, timing.turnTimeoutMillis - passed);
+            if (left <= timing.turnTimeoutWarningMillis)
+                command = (left << 2) | TIMER_WARN;
+            else
+                command = (Math.round(left / 1000.0) * 1000) << 2; // whole seconds, as the dealer used to show
+        }
+        else
+            command = (passed / 1000 * 1000 << 2) | TIMER_ELAPSED;
+        if (command != shownTimer) {
+            shownTimer = command;
+            applyTimer(ui, command);
+        }
+    }
+
+    private static void applyTimer(Display ui, long command) {
+        if ((command & TIMER_ELAPSED) != 0) ui.setElapsed(command >>> 2);
+        else ui.setCountdown(command >>> 2, (command & TIMER_WARN) != 0);
+    }
+}
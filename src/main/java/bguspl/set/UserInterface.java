@@ -56,6 +56,13 @@ public interface UserInterface {
      */
     void setElapsed(long millies);
 
+    /**
+     * Restart the timer at the specified time. From then on the user interface derives the countdown (or the elapsed
+     * time, if TurnTimeoutSeconds is 0) from it on its own, at its display rate.
+     * @param startMillis - the time the timer starts at (as returned by Env::clock).
+     */
+    void startTimer(long startMillis);
+
     /**
      * Set the player text in the score panel to show remaining freeze time.
      * If milliseconds > 0, show player name in red, and add freeze time.
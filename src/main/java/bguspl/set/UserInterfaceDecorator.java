@@ -2,103 +2,133 @@ package bguspl.set;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
+import static bguspl.set.GameEventLog.*;
+
+/**
+ * Records every user interface call in the game event log (see GameEventLog) before passing it on to each of the
+ * user interfaces (e.g. Swing and the spectators). Recording is a few stores on the calling thread, so the game
+ * threads never format or write log messages here.
+ */
 public class UserInterfaceDecorator implements UserInterface {
 
     private final Logger logger;
     private final Util util;
-    private final UserInterface ui;
-
-    public UserInterfaceDecorator(Logger logger, Util util, UserInterface ui) {
-        this.ui = ui;
+    private final UserInterface[] uis;
+    private final GameEventLog events;
+
+    /**
+     * The class constructor.
+     *
+     * @param logger - the logger object.
+     * @param util   - the utility object.
+     * @param events - the game event log (or null if there is none).
+     * @param uis    - the user interfaces to decorate (null entries are ignored).
+     */
+    public UserInterfaceDecorator(Logger logger, Util util, GameEventLog events, UserInterface... uis) {
+        this.uis = Arrays.stream(uis).filter(Objects::nonNull).toArray(UserInterface[]::new);
         this.logger = logger;
         this.util = util;
+        this.events = events;
+
+        if (this.uis.length == 0) System.out.println("running without a user interface. Check logs.");
+    }
 
-        if (ui == null) System.out.println("running without a user interface. Check logs.");
+    private void record(int type, int player, int slot, long value) {
+        if (events != null) events.record(type, player, slot, value);
     }
 
     @Override
     public void placeCard(int card, int slot) {
-        logger.severe("placing card " + card + " in slot " + slot);
+        record(CARD_PLACED, NONE, slot, card);
         util.spin();
-        if (ui != null) ui.placeCard(card, slot);
+        for (UserInterface ui : uis) ui.placeCard(card, slot);
     }
 
     @Override
     public void removeCard(int slot) {
-        logger.severe("removing card from slot " + slot);
+        record(CARD_REMOVED, NONE, slot, NONE);
         util.spin();
-        if (ui != null) ui.removeCard(slot);
+        for (UserInterface ui : uis) ui.removeCard(slot);
     }
 
     @Override
     public void placeToken(int player, int slot) {
-        logger.severe("player " + (player + 1) + " placing token on slot " + slot);
+        record(TOKEN_PLACED, player, slot, NONE);
         util.spin();
-        if (ui != null) ui.placeToken(player, slot);
+        for (UserInterface ui : uis) ui.placeToken(player, slot);
     }
 
     @Override
     public void removeTokens() {
-        logger.severe("removing all tokens");
+        record(TOKENS_REMOVED, NONE, NONE, NONE);
         util.spin();
-        if (ui != null) ui.removeTokens();
+        for (UserInterface ui : uis) ui.removeTokens();
     }
 
     @Override
     public void removeTokens(int slot) {
-        logger.severe("removing tokens from slot " + slot);
+        record(TOKENS_REMOVED, NONE, slot, NONE);
         util.spin();
-        if (ui != null) ui.removeTokens(slot);
+        for (UserInterface ui : uis) ui.removeTokens(slot);
     }
 
     @Override
     public void removeToken(int player, int slot) {
-        logger.severe("removing player " + (player + 1) + " token from slot " + slot);
+        record(TOKEN_REMOVED, player, slot, NONE);
         util.spin();
-        if (ui != null) ui.removeToken(player, slot);
+        for (UserInterface ui : uis) ui.removeToken(player, slot);
     }
 
     @Override
     public void setCountdown(long millies, boolean warn) {
-        if (!warn || millies % 1000L == 0L)
-            logger.severe("updating countdown to " + millies);
-        if (ui != null) ui.setCountdown(millies, warn);
+        record(COUNTDOWN, NONE, warn ? 1 : 0, millies);
+        for (UserInterface ui : uis) ui.setCountdown(millies, warn);
     }
 
     @Override
     public void setElapsed(long millies) {
-        logger.severe("updating elapsed time to " + millies);
+        record(ELAPSED, NONE, NONE, millies);
+        util.spin();
+        for (UserInterface ui : uis) ui.setElapsed(millies);
+    }
+
+    @Override
+    public void startTimer(long startMillis) {
+        record(TIMER_STARTED, NONE, NONE, startMillis);
         util.spin();
-        if (ui != null) ui.setElapsed(millies);
+        for (UserInterface ui : uis) ui.startTimer(startMillis);
     }
 
     @Override
     public void setFreeze(int player, long millies) {
-        logger.severe("setting player " + (player + 1) + " freeze to " + millies);
+        record(FREEZE, player, NONE, millies);
         util.spin();
-        if (ui != null) ui.setFreeze(player, millies);
+        for (UserInterface ui : uis) ui.setFreeze(player, millies);
     }
 
     @Override
     public void setScore(int player, int score) {
-        logger.severe("setting player " + (player + 1) + " score to " + score);
+        record(SCORE, player, NONE, score);
         util.spin();
-        if (ui != null) ui.setScore(player, score);
+        for (UserInterface ui : uis) ui.setScore(player, score);
     }
 
     @Override
     public void announceWinner(int[] players) {
+        for (int player : players)
+            record(WINNER, player, NONE, NONE);
         List<String> winners = Arrays.stream(players).mapToObj(id -> "player " + (id + 1)).collect(Collectors.toList());
         logger.severe("announcing winner(s): " + String.join(", ", winners));
-        if (ui != null) ui.announceWinner(players);
+        for (UserInterface ui : uis) ui.announceWinner(players);
     }
 
     @Override
     public void dispose() {
         logger.severe("disposing of user interface elements");
-        if (ui != null) ui.dispose();
+        for (UserInterface ui : uis) ui.dispose();
     }
 }
@@ -0,0 +1,384 @@
+package bguspl.set;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.logging.Logger;
+
+import static bguspl.set.GameEventLog.*;
+
+/**
+ * A user interface that streams the game to spectator clients over TCP (see SpectatorClient).
+ * The game threads only record each call in an EventRing, so they never block on the network. A single selector
+ * thread accepts the clients and, once per FLUSH_PERIOD_MILLIS, sends the recorded events to all of them as one
+ * batch. A client that falls more than CLIENT_BUFFER_SIZE bytes behind is dropped.
+ * Stream format: MAGIC, followed by records in the GameJournal record format. A new client first gets a snapshot of
+ * the game (the cards, tokens, scores, freezes and timer), as records.
+ */
+public class UserInterfaceNetwork implements UserInterface {
+
+    public static final long MAGIC = 0x5345545350454331L; // "SETSPEC1"
+
+    /**
+     * How often the recorded events are sent to the clients.
+     */
+    private static final long FLUSH_PERIOD_MILLIS = 10;
+
+    /**
+     * The number of bytes a client may fall behind before it is dropped.
+     */
+    private static final int CLIENT_BUFFER_SIZE = 64 * 1024;
+
+    private static final int BATCH_SIZE = CLIENT_BUFFER_SIZE / 4;
+
+    /**
+     * The number of connections waiting to be accepted, so a crowd of spectators may connect at once.
+     */
+    private static final int BACKLOG = 256;
+
+    private final Logger logger;
+    private final EventRing ring;
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final Thread thread;
+    private volatile boolean closed;
+
+    /*
+     * The fields below are used by the selector thread only.
+     */
+
+    private final ByteBuffer batch = ByteBuffer.allocateDirect(BATCH_SIZE);
+    private final ByteBuffer discard = ByteBuffer.allocate(256);
+    private final List<Client> clients = new ArrayList<>();
+
+    /**
+     * The state of the game as sent so far, for the snapshot of new clients.
+     */
+    private final int[] slotToCard;
+    private final boolean[][] tokens;
+    private final int[] score;
+    private final long[] freeze;
+    private int timerType = NONE;
+    private int timerSlot = NONE;
+    private long timerValue;
+
+    private static class Client {
+        final SocketChannel channel;
+        final ByteBuffer out = ByteBuffer.allocate(CLIENT_BUFFER_SIZE);
+        SelectionKey key;
+
+        Client(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    /**
+     * The class constructor. Starts the selector thread.
+     *
+     * @param logger - the logger object.
+     * @param config - the game configuration.
+     * @param port   - the TCP port to listen on (0 for any free port, see port()).
+     * @throws IOException - if the port cannot be bound.
+     */
+    public UserInterfaceNetwork(Logger logger, Config config, int port) throws IOException {
+        this.logger = logger;
+        ring = new EventRing(Math.max(1024, config.eventLogCapacity));
+        slotToCard = new int[config.tableSize];
+        Arrays.fill(slotToCard, NONE);
+        tokens = new boolean[config.players][config.tableSize];
+        score = new int[config.players];
+        freeze = new long[config.players];
+
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port), BACKLOG);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+
+        thread = new Thread(this::run, "spectators");
+        thread.setDaemon(true);
+        thread.start();
+        logger.info("spectators can connect on port " + port());
+    }
+
+    /**
+     * @return - the TCP port spectators connect to.
+     */
+    public int port() {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * @return - the number of events dropped because the game threads recorded them faster than they were sent.
+     */
+    public long dropped() {
+        return ring.dropped();
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        ring.record(CARD_PLACED, NONE, slot, card);
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        ring.record(CARD_REMOVED, NONE, slot, NONE);
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        ring.record(TOKEN_PLACED, player, slot, NONE);
+    }
+
+    @Override
+    public void removeTokens() {
+        ring.record(TOKENS_REMOVED, NONE, NONE, NONE);
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        ring.record(TOKENS_REMOVED, NONE, slot, NONE);
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        ring.record(TOKEN_REMOVED, player, slot, NONE);
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        ring.record(COUNTDOWN, NONE, warn ? 1 : 0, millies);
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        ring.record(ELAPSED, NONE, NONE, millies);
+    }
+
+    @Override
+    public void startTimer(long startMillis) {
+        ring.record(TIMER_STARTED, NONE, NONE, startMillis);
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        ring.record(FREEZE, player, NONE, millies);
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        ring.record(SCORE, player, NONE, score);
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        for (int player : players)
+            ring.record(WINNER, player, NONE, NONE);
+    }
+
+    /**
+     * Sends the last events to the clients (as far as they can take them without blocking), disconnects them and
+     * stops listening.
+     */
+    @Override
+    public void dispose() {
+        closed = true;
+        selector.wakeup();
+        try {
+            thread.join();
+        } catch (InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The selector thread starts here.
+     */
+    private void run() {
+        try {
+            while (!closed) {
+                selector.select(FLUSH_PERIOD_MILLIS);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid())
+                        continue;
+                    if (key.isAcceptable())
+                        while (accept()) ;
+                    else {
+                        Client client = (Client) key.attachment();
+                        if (key.isReadable())
+                            read(client);
+                        if (key.isValid() && key.isWritable())
+                            flush(client);
+                    }
+                }
+                broadcast();
+            }
+            broadcast();
+        } catch (IOException | ClosedSelectorException e) {
+            logger.severe("spectator server failed: " + e);
+        } finally {
+            for (Client client : new ArrayList<>(clients))
+                drop(client, null);
+            try {
+                server.close();
+                selector.close();
+            } catch (IOException ignored) {}
+        }
+    }
+
+    /**
+     * Accepts a client, if one is waiting, and sends it the snapshot of the game.
+     *
+     * @return - true iff a client was accepted.
+     */
+    private boolean accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null)
+            return false;
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        Client client = new Client(channel);
+        client.key = channel.register(selector, SelectionKey.OP_READ, client);
+        clients.add(client);
+
+        // the snapshot of the game so far
+        ByteBuffer out = client.out;
+        long now = System.nanoTime();
+        out.putLong(MAGIC);
+        for (int slot = 0; slot < slotToCard.length; slot++)
+            if (slotToCard[slot] != NONE)
+                put(out, CARD_PLACED, NONE, slot, slotToCard[slot], now);
+        for (int player = 0; player < tokens.length; player++) {
+            for (int slot = 0; slot < slotToCard.length; slot++)
+                if (tokens[player][slot])
+                    put(out, TOKEN_PLACED, player, slot, NONE, now);
+            put(out, SCORE, player, NONE, score[player], now);
+            if (freeze[player] > 0)
+                put(out, FREEZE, player, NONE, freeze[player], now);
+        }
+        if (timerType != NONE)
+            put(out, timerType, NONE, timerSlot, timerValue, now);
+        flush(client);
+        return true;
+    }
+
+    /**
+     * Spectators send nothing: reading only notices a client that disconnected.
+     */
+    private void read(Client client) {
+        try {
+            discard.clear();
+            if (client.channel.read(discard) < 0)
+                drop(client, null);
+        } catch (IOException e) {
+            drop(client, e.toString());
+        }
+    }
+
+    /**
+     * Sends all the recorded events to all the clients.
+     */
+    private void broadcast() throws IOException {
+        batch.clear();
+        ring.drain(this::append);
+        send();
+    }
+
+    private void append(byte type, short player, short slot, long value, long nanos) {
+        if (batch.remaining() < GameJournal.RECORD_SIZE)
+            send();
+        put(batch, type, player, slot, value, nanos);
+        update(type, player, slot, value);
+    }
+
+    /**
+     * Appends the batch to the output of each client and clears it. A client whose output cannot take the batch is
+     * dropped.
+     */
+    private void send() {
+        batch.flip();
+        if (batch.hasRemaining()) {
+            for (int i = clients.size() - 1; i >= 0; i--) {
+                Client client = clients.get(i);
+                if (client.out.remaining() < batch.remaining()) {
+                    drop(client, "too slow");
+                    continue;
+                }
+                client.out.put(batch.duplicate());
+                flush(client);
+            }
+        }
+        batch.clear();
+    }
+
+    /**
+     * Writes as much of the output of a client as its channel takes without blocking.
+     */
+    private void flush(Client client) {
+        try {
+            client.out.flip();
+            client.channel.write(client.out);
+            client.out.compact();
+            if (client.key.isValid())
+                client.key.interestOps(client.out.position() > 0
+                        ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        } catch (IOException e) {
+            drop(client, e.toString());
+        }
+    }
+
+    private void drop(Client client, String reason) {
+        if (!clients.remove(client))
+            return;
+        if (reason != null)
+            logger.warning("dropping spectator " + client.channel.socket().getRemoteSocketAddress() + ": " + reason);
+        client.key.cancel();
+        try {
+            client.channel.close();
+        } catch (IOException ignored) {}
+    }
+
+    /**
+     * Applies an event to the snapshot state.
+     */
+    private void update(int type, int player, int slot, long value) {
+        switch (type) {
+            case CARD_PLACED: slotToCard[slot] = (int) value; break;
+            case CARD_REMOVED: slotToCard[slot] = NONE; break;
+            case TOKEN_PLACED: tokens[player][slot] = true; break;
+            case TOKEN_REMOVED: tokens[player][slot] = false; break;
+            case TOKENS_REMOVED:
+                for (boolean[] playerTokens : tokens) {
+                    if (slot == NONE) Arrays.fill(playerTokens, false);
+                    else playerTokens[slot] = false;
+                }
+                break;
+            case COUNTDOWN:
+            case ELAPSED:
+            case TIMER_STARTED:
+                timerType = type;
+                timerSlot = slot;
+                timerValue = value;
+                break;
+            case FREEZE: freeze[player] = value; break;
+            case SCORE: score[player] = (int) value; break;
+            default:
+        }
+    }
+
+    private static void put(ByteBuffer buffer, int type, int player, int slot, long value, long nanos) {
+        buffer.put((byte) type).putShort((short) player).putShort((short) slot).putLong(value).putLong(nanos);
+    }
+}
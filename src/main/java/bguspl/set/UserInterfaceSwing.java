@@ -23,16 +23,37 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
     private final PlayersPanel playersPanel;
     private final WinnerPanel winnerPanel;
     private final Config config;
+    private final UiCommandQueue commands;
+    private final Renderer renderer;
+    private final Timer frameTimer;
+    private final InputTrace trace;
 
     static String intInBaseToPaddedString(int n, int padding, int base) {
         return format("%" + padding + "s", Integer.toString(n, base)).replace(' ', '0');
     }
 
-    public UserInterfaceSwing(Logger logger, Config config, Player[] players) {
+    public UserInterfaceSwing(Logger logger, Config config, Util util, Player[] players) {
+        this(logger, config, util, players, new InputTrace(config.players, config.tableSize));
+    }
+
+    public UserInterfaceSwing(Logger logger, Config config, Util util, Player[] players, InputTrace trace) {
+        this(logger, config, util, players, trace, Clock.SYSTEM);
+    }
+
+    /**
+     * @param logger  - the logger object.
+     * @param config  - the game configuration.
+     * @param util    - the game utilities.
+     * @param players - the players the keyboard input goes to.
+     * @param trace   - the input trace, told when tokens and freezes are painted.
+     * @param clock   - the game's clock, which the running timer is shown by.
+     */
+    public UserInterfaceSwing(Logger logger, Config config, Util util, Player[] players, InputTrace trace, Clock clock) {
 
         this.config = config;
+        this.trace = trace;
         timerPanel = new TimerPanel();
-        gamePanel = new GamePanel();
+        gamePanel = new GamePanel(logger, util);
         playersPanel = new PlayersPanel();
         winnerPanel = new WinnerPanel();
 
@@ -63,10 +84,19 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
         setLocationRelativeTo(null);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 
-        addKeyListener(new InputManager(logger, config, players));
+        addKeyListener(new InputManager(config, players));
         addWindowListener(new WindowManager());
 
-        EventQueue.invokeLater(() -> setVisible(true));
+        // apply the pending commands of the game threads once per frame, on the event dispatch thread
+        commands = new UiCommandQueue(config, clock);
+        renderer = new Renderer();
+        frameTimer = new Timer(1000 / Math.max(1, config.frameRate), e -> commands.flush(renderer));
+        frameTimer.setCoalesce(true);
+
+        EventQueue.invokeLater(() -> {
+            setVisible(true);
+            frameTimer.start();
+        });
     }
 
     private class TimerPanel extends JPanel {
@@ -81,7 +111,7 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
         }
 
         private TimerPanel() {
-            timerField = new JLabel(config.turnTimeoutMillis < 0 ? "PLAY" : "GET READY...");
+            timerField = new JLabel(config.timing().turnTimeoutMillis < 0 ? "PLAY" : "GET READY...");
 
             // set fonts and color
             timerField.setFont(new Font("Serif", Font.BOLD, config.fontSize));
@@ -102,73 +132,59 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
 
     private class GamePanel extends JLayeredPane {
 
-        private final Image emptyCard;
-        private final Image[] deck;
+        private final CardImages cardImages;
         private final Image[][] grid;
         private final boolean[][][] playerTokens;
-        private final JLabel[][] tokenText;
 
-        private Image loadImageResource(String filename) {
-            URL imageResource = getClass().getClassLoader().getResource(filename);
-            if (imageResource == null)
-                throw new RuntimeException(new FileNotFoundException(filename));
-            return new ImageIcon(imageResource).getImage();
-        }
+        /**
+         * The cached token overlay text of each cell (null if it needs to be regenerated).
+         */
+        private final String[][] tokenText;
+        private final StringBuilder tokenTextBuilder = new StringBuilder();
 
-        private GamePanel() {
+        private GamePanel(Logger logger, Util util) {
 
             setPreferredSize(new Dimension(config.columns * config.cellWidth, config.rows * config.cellHeight));
+            setFont(UIManager.getFont("Label.font"));
 
-            // init deck and load all pictures from png files
-            assert config.featureSize < 10; // otherwise there will be naming conflicts
-
-            // load the image resources
-            deck = new Image[config.deckSize];
-            for (int i = 0; i < config.deckSize; ++i)
-                deck[i] = loadImageResource("cards/" + intInBaseToPaddedString(i, config.featureCount, config.featureSize) + ".png");
-            emptyCard = loadImageResource("cards/empty_card.png");
+            // start loading the card images (in the background)
+            cardImages = new CardImages(logger, config, util);
 
             grid = new Image[config.rows][config.columns];
-            tokenText = new JLabel[config.rows][config.columns];
+            tokenText = new String[config.rows][config.columns];
             playerTokens = new boolean[config.players][config.rows][config.columns];
             for (int row = 0; row < config.rows; row++) {
                 for (int column = 0; column < config.columns; column++) {
-                    // init the cards on the table grid as empty cards
-                    grid[row][column] = emptyCard;
-
-                    // init the JLabel selection overlay
-                    tokenText[row][column] = new JLabel("");
-                    tokenText[row][column].setVerticalAlignment(JLabel.TOP);
-                    tokenText[row][column].setHorizontalAlignment(JLabel.CENTER);
-                    tokenText[row][column].setOpaque(false);
-                    tokenText[row][column].setBorder(BorderFactory.createLineBorder(Color.black));
-                    tokenText[row][column].setBounds((column * config.cellWidth), (row * config.cellHeight), config.cellWidth, config.cellHeight);
-                    add(tokenText[row][column]);
+                    // init the cards on the table grid as empty cards, with no tokens
+                    grid[row][column] = cardImages.emptyCard();
+                    tokenText[row][column] = "";
                 }
             }
         }
 
+        /**
+         * Schedules a repaint of a single cell (a pure content change, so there is no need to revalidate the layout).
+         */
+        private void repaintCell(int row, int column) {
+            repaint(column * config.cellWidth, row * config.cellHeight, config.cellWidth, config.cellHeight);
+        }
+
         private void placeCard(int slot, int card) {
             int row = slot / config.columns;
             int column = slot % config.columns;
-            grid[row][column] = deck[card];
-            validate();
-            repaint();
+            grid[row][column] = cardImages.card(card);
+            repaintCell(row, column);
         }
 
         private void removeCard(int slot) {
             int row = slot / config.columns;
             int column = slot % config.columns;
-            grid[row][column] = emptyCard;
-            validate();
-            repaint();
+            grid[row][column] = cardImages.emptyCard();
+            repaintCell(row, column);
         }
 
         private void placeToken(int player, int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            playerTokens[player][row][column] = true;
-            tokenText[row][column].setText(generatePlayersTokenText(row, column));
+            setToken(player, slot, true);
         }
 
         private void removeTokens() {
@@ -177,38 +193,70 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
         }
 
         private void removeTokens(int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            for (int player = 0; player < playerTokens.length; player++) {
-                playerTokens[player][row][column] = false;
-                tokenText[row][column].setText(generatePlayersTokenText(row, column));
-            }
+            for (int player = 0; player < playerTokens.length; player++)
+                setToken(player, slot, false);
         }
 
         private void removeToken(int player, int slot) {
+            setToken(player, slot, false);
+        }
+
+        private void setToken(int player, int slot, boolean placed) {
             int row = slot / config.columns;
             int column = slot % config.columns;
-            playerTokens[player][row][column] = false;
-            tokenText[row][column].setText(generatePlayersTokenText(row, column));
+            if (playerTokens[player][row][column] == placed)
+                return;
+            playerTokens[player][row][column] = placed;
+            tokenText[row][column] = null; // regenerated once, on the next paint of the cell
+            repaintCell(row, column);
         }
 
         private String generatePlayersTokenText(int row, int column) {
-            String text = "";
+            tokenTextBuilder.setLength(0);
             for (int player = 0; player < config.players; player++) {
-                if (playerTokens[player][row][column])
-                    text = text.concat(config.playerNames[player] + ", ");
+                if (playerTokens[player][row][column]) {
+                    if (tokenTextBuilder.length() > 0)
+                        tokenTextBuilder.append(", ");
+                    tokenTextBuilder.append(config.playerNames[player]);
+                }
             }
-            if (text.length() < 2)
-                return "";
-            return text.substring(0, text.length() - 2);
+            return tokenTextBuilder.toString();
         }
 
         @Override
         public void paintComponent(Graphics g) {
-            // draw card images
-            for (int row = 0; row < config.rows; row++)
-                for (int column = 0; column < config.columns; column++)
-                    g.drawImage(grid[row][column], (column * config.cellWidth), (row * config.cellHeight), this);
+            // only the cells intersecting the dirty region are drawn
+            Rectangle clip = g.getClipBounds();
+            if (clip == null)
+                clip = new Rectangle(0, 0, getWidth(), getHeight());
+            int firstRow = Math.max(0, clip.y / config.cellHeight);
+            int lastRow = Math.min(config.rows - 1, (clip.y + clip.height - 1) / config.cellHeight);
+            int firstColumn = Math.max(0, clip.x / config.cellWidth);
+            int lastColumn = Math.min(config.columns - 1, (clip.x + clip.width - 1) / config.cellWidth);
+
+            FontMetrics metrics = g.getFontMetrics();
+            g.setColor(Color.BLACK);
+            for (int row = firstRow; row <= lastRow; row++) {
+                for (int column = firstColumn; column <= lastColumn; column++) {
+                    int x = column * config.cellWidth;
+                    int y = row * config.cellHeight;
+
+                    // draw the card image
+                    g.drawImage(grid[row][column], x, y, null);
+
+                    // draw the token overlay (the names of the players with a token on the card)
+                    g.drawRect(x, y, config.cellWidth - 1, config.cellHeight - 1);
+                    if (tokenText[row][column] == null)
+                        tokenText[row][column] = generatePlayersTokenText(row, column);
+                    String text = tokenText[row][column];
+                    if (!text.isEmpty()) {
+                        g.drawString(text, x + (config.cellWidth - metrics.stringWidth(text)) / 2, y + metrics.getAscent());
+                        for (int player = 0; player < playerTokens.length; player++)
+                            if (playerTokens[player][row][column])
+                                trace.tokenPainted(player, row * config.columns + column);
+                    }
+                }
+            }
         }
     }
 
@@ -216,10 +264,16 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
 
         private final JLabel[][] playersTable;
 
+        /**
+         * Whether each player's freeze was set but not painted yet (for the input trace).
+         */
+        private final boolean[] freezeSet;
+
         private PlayersPanel() {
             this.setLayout(new GridLayout(2, config.players));
             this.setPreferredSize(new Dimension(config.players * config.playerCellWidth, config.rows * config.playerCellHeight));
             this.playersTable = new JLabel[2][config.players];
+            this.freezeSet = new boolean[config.players];
             for (int i = 0; i < config.players; i++) {
                 this.playersTable[0][i] = new JLabel(config.playerNames[i]);
                 this.playersTable[0][i].setFont(new Font("Serif", Font.BOLD, config.fontSize));
@@ -237,6 +291,7 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
 
         private void setFreeze(int player, long millies) {
             if (millies > 0) {
+                freezeSet[player] = true;
                 this.playersTable[0][player].setText(config.playerNames[player] + " (" + millies / 1000 + ")");
                 this.playersTable[0][player].setForeground(Color.RED);
             } else {
@@ -248,6 +303,17 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
         private void setScore(int player, int score) {
             playersTable[1][player].setText(Integer.toString(score));
         }
+
+        @Override
+        public void paint(Graphics g) {
+            super.paint(g);
+            for (int player = 0; player < freezeSet.length; player++) {
+                if (freezeSet[player]) {
+                    freezeSet[player] = false;
+                    trace.freezePainted(player);
+                }
+            }
+        }
     }
 
     private class WinnerPanel extends JPanel {
@@ -274,65 +340,136 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
         }
     }
 
+    /**
+     * Applies the user interface commands to the panels. Runs on the event dispatch thread only.
+     */
+    private class Renderer implements UiCommandQueue.Display {
+
+        @Override
+        public void placeCard(int card, int slot) {
+            gamePanel.placeCard(slot, card);
+        }
+
+        @Override
+        public void removeCard(int slot) {
+            gamePanel.removeCard(slot);
+        }
+
+        @Override
+        public void placeToken(int player, int slot) {
+            gamePanel.placeToken(player, slot);
+        }
+
+        @Override
+        public void removeToken(int player, int slot) {
+            gamePanel.removeToken(player, slot);
+        }
+
+        @Override
+        public void setCountdown(long millies, boolean warn) {
+            timerPanel.setCountdown(millies, warn);
+        }
+
+        @Override
+        public void setElapsed(long millies) {
+            timerPanel.setElapsed(millies);
+        }
+
+        @Override
+        public void setFreeze(int player, long millies) {
+            playersPanel.setFreeze(player, millies);
+        }
+
+        @Override
+        public void setScore(int player, int score) {
+            playersPanel.setScore(player, score);
+        }
+
+        void announceWinner(int[] players) {
+            playersPanel.setVisible(false);
+            winnerPanel.announceWinner(players);
+            winnerPanel.setVisible(true);
+        }
+
+        void dispose() {
+            frameTimer.stop();
+            UserInterfaceSwing.super.dispose();
+        }
+    }
+
+    /*
+     * The methods below are called by the game threads: they only post commands, which the frame timer applies on
+     * the event dispatch thread.
+     */
+
     @Override
     public void placeCard(int card, int slot) {
-        gamePanel.placeCard(slot, card);
+        commands.placeCard(card, slot);
     }
 
     @Override
     public void removeCard(int slot) {
-        gamePanel.removeCard(slot);
+        commands.removeCard(slot);
     }
 
     @Override
     public void placeToken(int player, int slot) {
-        gamePanel.placeToken(player, slot);
+        commands.placeToken(player, slot);
     }
 
     @Override
     public void removeTokens() {
-        gamePanel.removeTokens();
+        commands.removeTokens();
     }
 
     @Override
     public void removeTokens(int slot) {
-        gamePanel.removeTokens(slot);
+        commands.removeTokens(slot);
     }
 
     @Override
     public void removeToken(int player, int slot) {
-        gamePanel.removeToken(player, slot);
+        commands.removeToken(player, slot);
     }
 
     @Override
     public void setCountdown(long millies, boolean warn) {
-        timerPanel.setCountdown(millies, warn);
+        commands.setCountdown(millies, warn);
     }
 
     @Override
     public void setElapsed(long millies) {
-        timerPanel.setElapsed(millies);
+        commands.setElapsed(millies);
+    }
+
+    @Override
+    public void startTimer(long startMillis) {
+        commands.startTimer(startMillis);
     }
 
     @Override
     public void setFreeze(int player, long millies) {
-        playersPanel.setFreeze(player, millies);
+        commands.setFreeze(player, millies);
     }
 
     @Override
     public void setScore(int player, int score) {
-        playersPanel.setScore(player, score);
+        commands.setScore(player, score);
     }
 
     @Override
     public void announceWinner(int[] players) {
-        playersPanel.setVisible(false);
-        winnerPanel.announceWinner(players);
-        winnerPanel.setVisible(true);
+        EventQueue.invokeLater(() -> {
+            commands.flush(renderer);
+            renderer.announceWinner(players);
+        });
     }
 
     @Override
     public void dispose() {
-        super.dispose();
+        EventQueue.invokeLater(() -> {
+            commands.flush(renderer);
+            renderer.dispose();
+        });
     }
 }
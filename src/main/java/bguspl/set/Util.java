@@ -1,5 +1,6 @@
 package bguspl.set;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -40,6 +41,20 @@ public interface Util {
      */
     List<int[]> findSets(List<Integer> deck, int count);
 
+    /**
+     * Checks if some of the given cards form a legal set.
+     *
+     * @param cards - an array of cards.
+     * @param size  - the number of cards to check (the first cards of the array).
+     * @return - true iff there is a legal set among the first size cards.
+     */
+    default boolean containsSet(int[] cards, int size) {
+        List<Integer> deck = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            deck.add(cards[i]);
+        return !findSets(deck, 1).isEmpty();
+    }
+
     /**
      * Spin a random number of times (for debugging/testing).
      */
@@ -13,8 +13,22 @@ public class UtilImpl implements Util {
 
     private final Config config;
 
+    /**
+     * The divisor of each feature in a card id (see feature).
+     */
+    private final int[] featureDivisors;
+
+    /**
+     * The combination and selected cards buffers of each thread (see containsSet).
+     */
+    private final ThreadLocal<int[][]> combinationBuffers;
+
     public UtilImpl(Config config) {
         this.config = config;
+        featureDivisors = new int[config.featureCount];
+        for (int i = config.featureCount - 1, divisor = 1; i >= 0; --i, divisor *= config.featureSize)
+            featureDivisors[i] = divisor;
+        combinationBuffers = ThreadLocal.withInitial(() -> new int[2][config.featureSize]);
     }
 
     private void cardToFeatures(int card, int[] features) {
@@ -38,23 +52,31 @@ public class UtilImpl implements Util {
         return features;
     }
 
+    /**
+     * @return - the value of the i'th feature of a card (see cardToFeatures), without allocating an array.
+     */
+    private int feature(int card, int i) {
+        return card / featureDivisors[i] % config.featureSize;
+    }
+
     @Override
     public boolean testSet(int[] cards) {
-        int[][] features = cardsToFeatures(Arrays.copyOf(cards, cards.length));
+        // the features are computed on the fly, so checking a claim allocates nothing
         for (int i = 0; i < config.featureCount; ++i) {
             boolean sameSame = true, butDifferent = true;
 
             // check if this features is sameSame in all cards
-            for (int j = 1; j < features.length; ++j)
-                if (features[0][i] != features[j][i]) {
+            int first = feature(cards[0], i);
+            for (int j = 1; j < cards.length; ++j)
+                if (first != feature(cards[j], i)) {
                     sameSame = false;
                     break;
                 }
 
             // check if this feature is butDifferent in all cards
-            for (int j = 1; j < features.length; ++j)
-                for (int k = j; k < features.length; ++k)
-                    if (features[j - 1][i] == features[k][i]) {
+            for (int j = 1; j < cards.length && butDifferent; ++j)
+                for (int k = j; k < cards.length; ++k)
+                    if (feature(cards[j - 1], i) == feature(cards[k], i)) {
                         butDifferent = false;
                         break;
                     }
@@ -66,28 +88,92 @@ public class UtilImpl implements Util {
 
     @Override
     public List<int[]> findSets(List<Integer> deck, int count) {
+        GameEvents.FindSets event = new GameEvents.FindSets();
+        event.begin();
+        List<int[]> sets = search(deck, count);
+        event.end();
+        if (event.shouldCommit()) {
+            event.cards = deck.size();
+            event.requested = count;
+            event.found = sets.size();
+            event.commit();
+        }
+        return sets;
+    }
+
+    private List<int[]> search(List<Integer> deck, int count) {
         LinkedList<int[]> sets = new LinkedList<>();
         int n = deck.size();
         int r = config.featureSize;
+        if (n < r)
+            return sets;
         int[] combination = new int[r];
+        int[] cards = new int[r];
 
         for (int i = 0; i < r; ++i)
             combination[i] = i;
 
-        while (combination[r - 1] < deck.size()) {
-            int[] cards = Arrays.stream(combination).map(deck::get).sorted().toArray();
+        do {
+            for (int i = 0; i < r; ++i)
+                cards[i] = deck.get(combination[i]);
             if (testSet(cards)) {
-                sets.add(cards);
+                int[] set = cards.clone();
+                Arrays.sort(set);
+                sets.add(set);
                 if (sets.size() >= count) return sets;
             }
+        } while (nextCombination(combination, n));
+        return sets;
+    }
 
-            // generate next combination in lexicographic order
-            int t = r - 1;
-            while (t != 0 && combination[t] == n - r + t) --t;
-            combination[t]++;
-            for (int i = t + 1; i < r; i++) combination[i] = combination[i - 1] + 1;
+    @Override
+    public boolean containsSet(int[] cards, int size) {
+        // the event object is only created while it is recorded, as this runs on every pass of the dealer
+        GameEvents.FindSets event = GameEvents.FIND_SETS.isEnabled() ? new GameEvents.FindSets() : null;
+        if (event != null)
+            event.begin();
+        boolean found = false;
+        int r = config.featureSize;
+        if (size >= r) {
+            int[][] buffers = combinationBuffers.get();
+            int[] combination = buffers[0];
+            int[] selected = buffers[1];
+            for (int i = 0; i < r; ++i)
+                combination[i] = i;
+            do {
+                for (int i = 0; i < r; ++i)
+                    selected[i] = cards[combination[i]];
+                found = testSet(selected);
+            } while (!found && nextCombination(combination, size));
         }
-        return sets;
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.cards = size;
+                event.requested = 1;
+                event.found = found ? 1 : 0;
+                event.commit();
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Advances to the next combination of indices in lexicographic order.
+     *
+     * @param combination - increasing indices between 0 and n - 1.
+     * @param n           - the number of elements.
+     * @return            - false if the combination was the last one.
+     */
+    private static boolean nextCombination(int[] combination, int n) {
+        int r = combination.length;
+        int t = r - 1;
+        while (t >= 0 && combination[t] == n - r + t) --t;
+        if (t < 0)
+            return false;
+        combination[t]++;
+        for (int i = t + 1; i < r; i++) combination[i] = combination[i - 1] + 1;
+        return true;
     }
 
     public void spin() {
@@ -0,0 +1,156 @@
+package bguspl.set;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A clock whose time only moves when it is told to, for tests: a 60 second turn times out as soon as the test
+ * advances the clock by 60 seconds, without waiting for it.
+ * Threads that sleep or wait with a timeout on this clock wake up once the clock passes their deadline. Waiting
+ * without a timeout (and notifying) works as with the system clock.
+ *
+ * In auto advance mode, sleeping moves the clock forward by the time slept instead of blocking. This suits tests
+ * with a single thread that sleeps (e.g. a player serving its freeze), but with several sleeping threads their
+ * sleeps add up.
+ */
+public class VirtualClock implements Clock {
+
+    private final boolean autoAdvance;
+
+    /**
+     * The current time (guarded by this).
+     */
+    private long now;
+
+    /**
+     * The threads waiting with a timeout (guarded by this).
+     */
+    private final List<Waiter> waiters = new ArrayList<>();
+
+    private static class Waiter {
+        final Object monitor;
+        final long deadline;
+
+        Waiter(Object monitor, long deadline) {
+            this.monitor = monitor;
+            this.deadline = deadline;
+        }
+    }
+
+    /**
+     * The class constructor.
+     *
+     * @param startMillis - the time of the clock at start.
+     * @param autoAdvance - true iff sleeping should move the clock forward instead of blocking.
+     */
+    public VirtualClock(long startMillis, boolean autoAdvance) {
+        this.now = startMillis;
+        this.autoAdvance = autoAdvance;
+    }
+
+    /**
+     * A clock that starts at 0 and only moves when advanced.
+     */
+    public VirtualClock() {
+        this(0, false);
+    }
+
+    @Override
+    public synchronized long millis() {
+        return now;
+    }
+
+    @Override
+    public void sleep(long millis) throws InterruptedException {
+        if (millis <= 0)
+            return;
+        if (autoAdvance) {
+            advance(millis);
+            return;
+        }
+        long deadline;
+        synchronized (this) {
+            deadline = now + millis;
+        }
+        Object monitor = new Object();
+        synchronized (monitor) {
+            while (millis() < deadline)
+                awaitUntil(monitor, deadline);
+        }
+    }
+
+    @Override
+    public void await(Object monitor, long millis) throws InterruptedException {
+        if (millis == 0)
+            monitor.wait();
+        else
+            awaitUntil(monitor, millis() + millis);
+    }
+
+    private void awaitUntil(Object monitor, long deadline) throws InterruptedException {
+        Waiter waiter = new Waiter(monitor, deadline);
+        synchronized (this) {
+            if (now >= deadline)
+                return;
+            waiters.add(waiter);
+        }
+        try {
+            // advance() notifies the monitor, which it cannot do before this thread releases it here
+            monitor.wait();
+        } finally {
+            synchronized (this) {
+                waiters.remove(waiter);
+            }
+        }
+    }
+
+    /**
+     * Moves the clock forward and wakes up the threads whose deadline passed.
+     *
+     * @param millis - the time to move forward.
+     */
+    public void advance(long millis) {
+        List<Object> due = new ArrayList<>();
+        synchronized (this) {
+            now += millis;
+            for (Waiter waiter : waiters)
+                if (waiter.deadline <= now)
+                    due.add(waiter.monitor);
+        }
+        // notified without holding this, since the waiters lock this while holding their monitor
+        for (Object monitor : due)
+            synchronized (monitor) {
+                monitor.notifyAll();
+            }
+    }
+
+    /**
+     * Moves the clock forward to the earliest deadline of the waiting threads, if any.
+     *
+     * @return - true iff a thread was waiting with a timeout.
+     */
+    public boolean advanceToNextDeadline() {
+        long next = nextDeadline();
+        if (next == Long.MAX_VALUE)
+            return false;
+        advance(Math.max(0, next - millis()));
+        return true;
+    }
+
+    /**
+     * @return - the earliest deadline of the waiting threads (Long.MAX_VALUE if none).
+     */
+    public synchronized long nextDeadline() {
+        long next = Long.MAX_VALUE;
+        for (Waiter waiter : waiters)
+            next = Math.min(next, waiter.deadline);
+        return next;
+    }
+
+    /**
+     * @return - the number of threads waiting with a timeout.
+     */
+    public synchronized int waiters() {
+        return waiters.size();
+    }
+}
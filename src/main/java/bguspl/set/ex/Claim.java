@@ -0,0 +1,132 @@
+package bguspl.set.ex;
+
+/**
+ * An immutable record of a set claimed by a player: the slots holding the player's tokens, the cards that were in
+ * these slots and the table epoch and version at the time of the claim.
+ */
+public final class Claim {
+
+    /**
+     * The player that made the claim.
+     */
+    public final Player player;
+
+    /**
+     * The slots the player's tokens were placed on.
+     */
+    private final int[] slots;
+
+    /**
+     * The cards that were in these slots (respectively) when the claim was made.
+     */
+    private final int[] cards;
+
+    /**
+     * The table epoch when the claim was made (see Table::epoch).
+     */
+    public final int epoch;
+
+    /**
+     * The table version when the claim was made (see Table::version).
+     */
+    public final int version;
+
+    /**
+     * The time (System::nanoTime) of the key press that completed the claim.
+     */
+    public final long pressedNanos;
+
+    /**
+     * The time (System::nanoTime) the claim was made, right before it is offered to the dealer.
+     */
+    public final long createdNanos = System.nanoTime();
+
+    /**
+     * The class constructor.
+     *
+     * @param player       - the player that made the claim.
+     * @param slots        - the slots the player's tokens were placed on.
+     * @param cards        - the cards in these slots (respectively).
+     * @param epoch        - the table epoch when the claim was made.
+     * @param version      - the table version when the claim was made.
+     * @param pressedNanos - the time (System::nanoTime) of the key press that completed the claim.
+     */
+    public Claim(Player player, int[] slots, int[] cards, int epoch, int version, long pressedNanos) {
+        this.player = player;
+        this.slots = slots.clone();
+        this.cards = cards.clone();
+        this.epoch = epoch;
+        this.version = version;
+        this.pressedNanos = pressedNanos;
+    }
+
+    /**
+     * @return - the number of cards in the claim.
+     */
+    public int size() {
+        return slots.length;
+    }
+
+    /**
+     * @param i - the index of the claimed card.
+     * @return  - the slot of the i'th claimed card.
+     */
+    public int slot(int i) {
+        return slots[i];
+    }
+
+    /**
+     * @param i - the index of the claimed card.
+     * @return  - the i'th claimed card.
+     */
+    public int card(int i) {
+        return cards[i];
+    }
+
+    /**
+     * @return - a copy of the claimed slots.
+     */
+    public int[] slots() {
+        return slots.clone();
+    }
+
+    /**
+     * @return - a copy of the claimed cards.
+     */
+    public int[] cards() {
+        return cards.clone();
+    }
+
+    /**
+     * Copies the claimed cards to an array, so the dealer can check claims without allocating.
+     *
+     * @param into - an array of at least size() elements.
+     * @return     - the given array.
+     */
+    public int[] cards(int[] into) {
+        System.arraycopy(cards, 0, into, 0, cards.length);
+        return into;
+    }
+
+    /**
+     * Checks whether all the claimed cards are still on the table, in the claimed slots, since the claim was made.
+     * A claim made before a reshuffle is never current, even if the same cards were dealt back into the same slots.
+     * Cards are only placed and removed by the dealer, so the dealer can call this without holding the slot lock.
+     *
+     * @param table - the table the claim was made on.
+     * @return      - true iff the table was not reshuffled and none of the claimed cards was removed or replaced
+     *                since the claim was made.
+     */
+    public boolean isCurrent(Table table) {
+        if (epoch != table.epoch())
+            return false;
+        if (version == table.version())
+            return true;
+        for (int i = 0; i < slots.length; i++) {
+            Integer card = table.slotToCard[slots[i]];
+            if (card == null || card != cards[i])
+                return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,202 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The queue of claims waiting for the dealer, with an admission layer in front of it.
+ * A claim is rejected if its player already has too many claims in flight, or if the player exceeded its claims per
+ * second budget (the player then takes its tokens off the table, see Player).
+ * Claims of different players on the same slots are all admitted: the dealer serves the earliest one (see below), and
+ * the claims it took the cards from are no longer current when their turn comes.
+ * Claims are served by the time of the key press that completed them, not by the time they reached the queue. Each
+ * claim is held back for a short arbitration window after its key press, so that a conflicting claim that was
+ * completed earlier but delayed on its way to the queue is served first.
+ * In a seeded simulation (a configured seed and no human players), claims are served by the table version they were
+ * made on and then by player id instead, so the order does not depend on how the threads happened to be scheduled.
+ */
+public class ClaimQueue {
+
+    /**
+     * The claims waiting for the dealer.
+     */
+    private final PriorityBlockingQueue<Claim> queue;
+
+    /**
+     * The number of claims in the queue.
+     */
+    private final AtomicInteger depth = new AtomicInteger();
+
+    /**
+     * The number of claims per player that are queued or under verification.
+     */
+    private final AtomicIntegerArray inFlight;
+
+    /**
+     * The earliest time (in nanoseconds) each player may submit its next claim without exceeding its budget.
+     */
+    private final AtomicLongArray nextAdmission;
+
+    private final int maxInFlight;
+    private final long admissionIntervalNanos;
+    private final long arbitrationNanos;
+
+    /**
+     * Admission counters.
+     */
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejectedInFlight = new LongAdder();
+    private final LongAdder rejectedRate = new LongAdder();
+
+    /**
+     * The class constructor.
+     *
+     * @param config  - the game configuration.
+     * @param players - the number of players.
+     */
+    public ClaimQueue(Config config, int players) {
+        maxInFlight = Math.max(1, config.maxClaimsInFlight);
+        admissionIntervalNanos = config.claimsPerSecond > 0 ? (long) (1_000_000_000L / config.claimsPerSecond) : 0;
+        arbitrationNanos = config.claimArbitrationMillis * 1_000_000L;
+        inFlight = new AtomicIntegerArray(players);
+        nextAdmission = new AtomicLongArray(players);
+        boolean deterministic = config.seeded && config.humanPlayers == 0;
+        queue = new PriorityBlockingQueue<>(16, deterministic ? ClaimQueue::compareDeterministic : ClaimQueue::compare);
+    }
+
+    /**
+     * Submits a claim to the dealer, unless the admission layer rejects it.
+     *
+     * @param claim - the claim.
+     * @return      - true iff the claim was queued.
+     */
+    public boolean offer(Claim claim) {
+        int player = claim.player.id;
+        if (inFlight.incrementAndGet(player) > maxInFlight) {
+            inFlight.decrementAndGet(player);
+            rejectedInFlight.increment();
+            return false;
+        }
+        if (!admitRate(player)) {
+            inFlight.decrementAndGet(player);
+            rejectedRate.increment();
+            return false;
+        }
+        depth.incrementAndGet();
+        queue.add(claim);
+        admitted.increment();
+        return true;
+    }
+
+    /**
+     * Takes one claim out of its player's claims per second budget.
+     *
+     * @param player - the player id.
+     * @return       - true iff the player still had budget for a claim.
+     */
+    private boolean admitRate(int player) {
+        if (admissionIntervalNanos == 0)
+            return true;
+        long now = System.nanoTime();
+        long next = nextAdmission.get(player);
+        if (now - next < 0)
+            return false;
+        // the player thread is the only one submitting its claims, so a lost race here is just a rejection
+        return nextAdmission.compareAndSet(player, next, now + admissionIntervalNanos);
+    }
+
+    /**
+     * Orders claims by the time of their last key press (ties are broken by the player id).
+     */
+    private static int compare(Claim a, Claim b) {
+        int byTime = Long.compare(a.pressedNanos - b.pressedNanos, 0);
+        return byTime != 0 ? byTime : Integer.compare(a.player.id, b.player.id);
+    }
+
+    /**
+     * Orders claims by the table version they were made on, then by player id (a player's own claims are ordered by
+     * the time of their last key press).
+     */
+    private static int compareDeterministic(Claim a, Claim b) {
+        if (a.version != b.version)
+            return Integer.compare(a.version, b.version);
+        if (a.player.id != b.player.id)
+            return Integer.compare(a.player.id, b.player.id);
+        return Long.compare(a.pressedNanos - b.pressedNanos, 0);
+    }
+
+    /**
+     * @return - the number of nanoseconds until the earliest claim is ready to be served (0 if it is ready already,
+     *           and Long.MAX_VALUE if the queue is empty).
+     */
+    public long nanosUntilReady() {
+        Claim head = queue.peek();
+        if (head == null)
+            return Long.MAX_VALUE;
+        return Math.max(0, head.pressedNanos + arbitrationNanos - System.nanoTime());
+    }
+
+    /**
+     * Removes the earliest claim from the queue, if its arbitration window is over. The claim stays in flight until
+     * the dealer calls complete. Only the dealer thread may call this method.
+     *
+     * @return - the earliest claim, or null if there is no claim ready to be served.
+     */
+    public Claim poll() {
+        if (nanosUntilReady() != 0)
+            return null;
+        return remove();
+    }
+
+    private Claim remove() {
+        Claim claim = queue.poll();
+        if (claim != null)
+            depth.decrementAndGet();
+        return claim;
+    }
+
+    /**
+     * Called by the dealer once it is done with a claim it polled.
+     *
+     * @param claim - the claim.
+     */
+    public void complete(Claim claim) {
+        inFlight.decrementAndGet(claim.player.id);
+    }
+
+    /**
+     * Drops all the queued claims.
+     */
+    public void clear() {
+        for (Claim claim = remove(); claim != null; claim = remove())
+            complete(claim);
+    }
+
+    public boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    /**
+     * @return - the number of claims in the queue.
+     */
+    public int depth() {
+        return depth.get();
+    }
+
+    public long admitted() {
+        return admitted.sum();
+    }
+
+    public long rejectedInFlight() {
+        return rejectedInFlight.sum();
+    }
+
+    public long rejectedRate() {
+        return rejectedRate.sum();
+    }
+}
@@ -0,0 +1,70 @@
+package bguspl.set.ex;
+
+import bguspl.set.LatencyHistogram;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Logger;
+
+/**
+ * Per player claim statistics: verdicts, claims lost to an earlier claim on the same cards, and the latency from
+ * the key press that completed a claim to its verdict.
+ */
+public class ClaimStats {
+
+    private final LatencyHistogram[] latency;
+    private final AtomicLongArray points;
+    private final AtomicLongArray penalties;
+    private final AtomicLongArray lost;
+
+    /**
+     * The class constructor.
+     *
+     * @param players - the number of players.
+     */
+    public ClaimStats(int players) {
+        latency = new LatencyHistogram[players];
+        for (int i = 0; i < players; i++)
+            latency[i] = new LatencyHistogram();
+        points = new AtomicLongArray(players);
+        penalties = new AtomicLongArray(players);
+        lost = new AtomicLongArray(players);
+    }
+
+    /**
+     * Records the verdict on a claim.
+     *
+     * @param claim   - the claim.
+     * @param verdict - 1 for a point, -1 for a penalty and 0 if the claim lost its cards to an earlier claim.
+     * @param nanos   - the time of the verdict (System::nanoTime).
+     */
+    public void record(Claim claim, int verdict, long nanos) {
+        int player = claim.player.id;
+        latency[player].record(nanos - claim.pressedNanos);
+        if (verdict > 0) points.incrementAndGet(player);
+        else if (verdict < 0) penalties.incrementAndGet(player);
+        else lost.incrementAndGet(player);
+    }
+
+    /**
+     * @param player - the player id.
+     * @return       - the press to verdict latency histogram of the player.
+     */
+    public LatencyHistogram latency(int player) {
+        return latency[player];
+    }
+
+    /**
+     * Logs a fairness and latency report line for each player.
+     *
+     * @param logger - the logger to report to.
+     */
+    public void report(Logger logger) {
+        for (int i = 0; i < latency.length; i++) {
+            long won = points.get(i);
+            long contested = won + lost.get(i);
+            logger.info(String.format("player %d claims: points %d, penalties %d, lost %d (%.0f%% of unpenalized claims scored), latency %s",
+                    i + 1, won, penalties.get(i), lost.get(i), contested == 0 ? 100.0 : 100.0 * won / contested,
+                    latency[i].summary()));
+        }
+    }
+}
@@ -1,12 +1,15 @@
 package bguspl.set.ex;
 
 import bguspl.set.Env;
+import bguspl.set.GameEventLog;
+import bguspl.set.GameEvents;
+import bguspl.set.LockProfiler;
 import bguspl.set.ThreadLogger;
 
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -41,7 +44,15 @@ public class Dealer implements Runnable {
      */
     private long reshuffleTime = Long.MAX_VALUE;
     public Object dealerLock = new Object();
-    public ConcurrentLinkedQueue<Player> playerQueue = new ConcurrentLinkedQueue<>();
+    public final ClaimQueue playerQueue;
+    public final ClaimStats claimStats;
+
+    /**
+     * Buffers of the dealer thread, so its steady state loop allocates nothing: the cards of the claim being
+     * checked and the cards on the table.
+     */
+    private final int[] claimCards;
+    private final int[] onTable;
     private long resetingTime;
     Thread[] playersThread;
 
@@ -49,6 +60,11 @@ public class Dealer implements Runnable {
         this.env = env;
         this.table = table;
         this.players = players;
+        playerQueue = new ClaimQueue(env.config, players.length);
+        env.metrics.claimQueue(playerQueue::depth);
+        claimStats = new ClaimStats(players.length);
+        claimCards = new int[env.config.featureSize];
+        onTable = new int[env.config.tableSize];
         deck = IntStream.range(0, env.config.deckSize).boxed().collect(Collectors.toList());
     }
 
@@ -60,7 +76,7 @@ public class Dealer implements Runnable {
         env.logger.info("thread " + Thread.currentThread().getName() + " starting.");
         playersThread = new Thread[players.length];
         for (int i = 0; i < players.length; i++) {
-            Thread playerThread = new Thread(players[i] , "player "+i);
+            Thread playerThread = new ThreadLogger(players[i] , "player "+i, env.logger, env.threads);
             playersThread[i] = playerThread;
             playerThread.start();
             // synchronized (this){
@@ -73,14 +89,14 @@ public class Dealer implements Runnable {
         while (!shouldFinish()) {
             shuffleDeck();
             placeCardsOnTable();
-            updateTimerDisplay(true);
-            if(env.config.turnTimeoutMillis>0){
+            reset();
+            if(env.config.timing().turnTimeoutMillis>0){
                 timerLoop();
                 try {
-                    Player.slotLock.acquire();
+                    Player.lockSlots(env);
            
                 removeAllCardsFromTable();
-                Player.slotLock.release(); 
+                Player.unlockSlots(env); 
             } catch (InterruptedException e) {}
             }
             else {
@@ -88,29 +104,38 @@ public class Dealer implements Runnable {
             }
         }
         announceWinners();
+        env.logger.info("claims admitted: " + playerQueue.admitted() + ", rejected in flight: " + playerQueue.rejectedInFlight()
+                + ", rejected rate: " + playerQueue.rejectedRate());
+        claimStats.report(env.logger);
+        for (Player player : players)
+            env.logger.info("player " + (player.id + 1) + " key press to token latency " + player.tokenLatency().summary());
+        env.metrics.input.report(env.logger);
         env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
     }
 
     private void timerWithoutCountdown() {
         while(true){
             sleepUntilWokenOrTimeout();
-            updateTimerDisplay(false);
+            if(env.config.timing().turnTimeoutMillis>0)
+                return; // the configuration was reloaded with a countdown, which starts with the next turn
             if(!isSetOnTable()){
                 try {
-                    Player.slotLock.acquire();
+                    Player.lockSlots(env);
                     removeAllCardsFromTable();
                     if(shouldFinish()){
-                        Player.slotLock.release(); 
+                        Player.unlockSlots(env); 
                         break;
                     }
                 } catch (InterruptedException e) {}
-                Player.slotLock.release(); 
+                Player.unlockSlots(env); 
                 shuffleDeck();
                 placeCardsOnTable();
             }
             else{
+                long start = System.nanoTime();
                 removeCardsFromTable();
                 placeCardsOnTable();
+                env.metrics.dealerLoop.record(System.nanoTime() - start);
             }
         }
     }
@@ -119,11 +144,12 @@ public class Dealer implements Runnable {
      * The inner loop of the dealer thread that runs as long as the countdown did not time out.
      */
     private void timerLoop() {
-        while (!terminate && System.currentTimeMillis()-resetingTime < env.config.turnTimeoutMillis) {
+        while (!terminate && env.clock.millis()-resetingTime < env.config.timing().turnTimeoutMillis) {
             sleepUntilWokenOrTimeout();
-            updateTimerDisplay(false);
+            long start = System.nanoTime();
             removeCardsFromTable();
             placeCardsOnTable();
+            env.metrics.dealerLoop.record(System.nanoTime() - start);
         }
     }
 
@@ -147,104 +173,131 @@ public class Dealer implements Runnable {
      * Checks cards should be removed from the table and removes them.
      */
     private void removeCardsFromTable() {
-        if(playerQueue.isEmpty());
-        else{
-            Player claimer = playerQueue.remove();
-            if(playerTokensAreOk(claimer)){
-                try {
-                    Player.slotLock.acquire();
+        Claim claim = playerQueue.poll();
+        if(claim == null)
+            return;
+        GameEvents.Verdict event = GameEvents.VERDICT.isEnabled() ? new GameEvents.Verdict() : null;
+        if(event != null)
+            event.begin();
+        long polledNanos = System.nanoTime();
+        int verdict = 0;
+        // a claim whose cards were already taken (or reshuffled) is dropped without checking it
+        if(claim.isCurrent(table))
+            verdict = env.util.testSet(claim.cards(claimCards)) ? 1 : -1;
+        journal(claim, verdict);
+        if(verdict == 1){
+            try {
+                Player.lockSlots(env);
+                removeCardsFromTable(claim);
+                Player.unlockSlots(env);
             } catch (InterruptedException ignored) {}
-                int[] claimerTokens = new int[env.config.featureSize];
-                for (int i = 0; i < claimerTokens.length; i++) {
-                    if(claimer.tokenPlacement[i] != -1 && table.slotToCard[claimer.tokenPlacement[i]] != null)
-                        claimerTokens[i] = table.slotToCard[claimer.tokenPlacement[i]];
-                }
-                Player.slotLock.release();
-                if(env.util.testSet(claimerTokens)){
-                    claimer.pointOrPenalty = 1;
-                    try {
-                        Player.slotLock.acquire();
-                    removeCardsFromTable(claimer);
-                    Player.slotLock.release();
-                } catch (InterruptedException ignored) {}
-                    updateTimerDisplay(true);
-                }
-                else claimer.pointOrPenalty = -1;
-                claimer.canProceed = true;
-                synchronized(dealerLock){
-                dealerLock.notifyAll();
-                }
-            }
+        }
+        playerQueue.complete(claim);
+        long requested = env.locks.request(LockProfiler.DEALER_LOCK);
+        synchronized(dealerLock){
+            env.locks.acquired(LockProfiler.DEALER_LOCK, requested);
+            claim.player.verdict(claim, verdict);
+            dealerLock.notifyAll();
+            env.locks.released(LockProfiler.DEALER_LOCK);
+        }
+        long now = System.nanoTime();
+        claimStats.record(claim, verdict, now);
+        env.metrics.claimLatency.record(now - claim.createdNanos);
+        if(event == null)
+            return;
+        event.end();
+        if(event.shouldCommit()){
+            event.player = claim.player.id;
+            event.slots = Arrays.toString(claim.slots());
+            event.cards = Arrays.toString(claim.cards());
+            event.verdict = verdict;
+            event.queued = polledNanos - claim.createdNanos;
+            event.commit();
         }
     }
-    
 
-    private boolean playerTokensAreOk(Player player) {
-        for (int i = 0; i < player.tokenPlacement.length; i++) {
-            if(player.tokenPlacement[i] == -1) return false;
-        }
-        return true;
+    /**
+     * Records a claim and the verdict on it in the game event log.
+     */
+    private void journal(Claim claim, int verdict) {
+        if(env.events == null)
+            return;
+        for (int i = 0; i < claim.size(); i++)
+            env.events.record(GameEventLog.CLAIM, claim.player.id, claim.slot(i), claim.card(i));
+        env.events.record(GameEventLog.VERDICT, claim.player.id, GameEventLog.NONE, verdict);
     }
 
     /**
      * Check if any cards can be removed from the deck and placed on the table.
      */
     private void placeCardsOnTable() {
+        long start = System.nanoTime();
+        // the event and its payload are only collected while the event is recorded
+        GameEvents.CardBatch event = GameEvents.CARD_BATCH.isEnabled() ? new GameEvents.CardBatch() : null;
+        StringBuilder slots = null, cards = null;
+        if(event != null){
+            event.begin();
+            slots = new StringBuilder();
+            cards = new StringBuilder();
+        }
         boolean isChanged = false;
         for (int i = 0; i < env.config.tableSize; i++) {
             if(table.slotToCard[i] == null && !deck.isEmpty()){
                 int toRemove = deck.remove(0);
                 table.placeCard(toRemove, i);
                 isChanged = true;
+                if(event != null){
+                    event.count++;
+                    slots.append(slots.length() == 0 ? "" : ", ").append(i);
+                    cards.append(cards.length() == 0 ? "" : ", ").append(toRemove);
+                }
             }
         }
+        if(event != null){
+            event.end();
+            if(isChanged && event.shouldCommit()){
+                event.slots = "[" + slots + "]";
+                event.cards = "[" + cards + "]";
+                event.commit();
+            }
+        }
+        long requested = env.locks.request(LockProfiler.DEALER_LOCK);
         synchronized(dealerLock){
+            env.locks.acquired(LockProfiler.DEALER_LOCK, requested);
             dealerLock.notifyAll();
+            env.locks.released(LockProfiler.DEALER_LOCK);
             }
-        if(isChanged && env.config.hints)
+        if(isChanged)
+            env.metrics.refill.record(System.nanoTime() - start);
+        if(isChanged && env.config.timing().hints)
             table.hints();
     }
 
     /**
-     * Sleep for a fixed amount of time or until the thread is awakened for some purpose.
+     * Sleep until the turn times out (at most a second) or until the thread is awakened for some purpose.
+     * The timer display does not need the dealer: the user interface counts down on its own.
      */
     private void sleepUntilWokenOrTimeout() {
+        long turnTimeoutMillis = env.config.timing().turnTimeoutMillis;
         long timeToSleep = 1000;
-        if (env.config.turnTimeoutMillis>0 && env.config.turnTimeoutWarningMillis>(env.config.turnTimeoutMillis-(System.currentTimeMillis()-resetingTime)))
-            timeToSleep = 10;
-        if(env.config.turnTimeoutMillis<0)
+        if (turnTimeoutMillis>0)
+            timeToSleep = Math.max(1, Math.min(timeToSleep, turnTimeoutMillis-(env.clock.millis()-resetingTime)));
+        if(turnTimeoutMillis<0)
             timeToSleep = 0;
+        long requested = env.locks.request(LockProfiler.DEALER_LOCK);
         synchronized (dealerLock){
+            env.locks.acquired(LockProfiler.DEALER_LOCK, requested);
             try {
-                if(playerQueue.isEmpty()){
-                    dealerLock.wait(timeToSleep);
+                long readyIn = playerQueue.nanosUntilReady();
+                if(readyIn == Long.MAX_VALUE)
+                    env.locks.await(LockProfiler.DEALER_LOCK, dealerLock, timeToSleep);
+                else if(readyIn > 0){
+                    // a claim is held back until its arbitration window is over
+                    long readyMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(readyIn));
+                    env.locks.await(LockProfiler.DEALER_LOCK, dealerLock, timeToSleep == 0 ? readyMillis : Math.min(timeToSleep, readyMillis));
                 }
             } catch (InterruptedException ignored) {}
-        }
-    }
-
-    /**
-     * Reset and/or update the countdown and the countdown display.
-     */
-    private void updateTimerDisplay(boolean reset) {
-        if(reset) reset();
-        else{
-            long timePassed = System.currentTimeMillis() - resetingTime;
-            long timeLeft = env.config.turnTimeoutMillis - timePassed;
-            if (env.config.turnTimeoutMillis>0){
-                if (env.config.turnTimeoutWarningMillis>timeLeft)
-                    if (timeLeft<0)
-                        env.ui.setCountdown(0,true);
-                    else
-                        env.ui.setCountdown(timeLeft,true);
-                else{
-                    double doubleTimeToDisplay =  (double)((timeLeft))/1000;
-                    long timeToDisplay = (Long)(Math.round(doubleTimeToDisplay)*1000);
-                    env.ui.setCountdown(timeToDisplay,false);
-                }
-            }
-            else if (env.config.turnTimeoutMillis==0)
-                env.ui.setElapsed(timePassed);
+            env.locks.released(LockProfiler.DEALER_LOCK);
         }
     }
 
@@ -253,28 +306,28 @@ public class Dealer implements Runnable {
      * Returns all the cards from the table to the deck.
      */
     private void removeAllCardsFromTable() {
-          
-        for (int j = 0; j < players.length; j++) {
-            players[j].numOfTokens = 0;
-            for(int i = 0; i < players[j].tokenPlacement.length; i++){
-            players[j].tokenPlacement[i] = -1;
-            }
-            players[j].keyPressed.clear();
-        }    
+        // players drop their tokens and key presses lazily once they notice the new epoch
+        GameEvents.Reshuffle event = GameEvents.RESHUFFLE.isEnabled() ? new GameEvents.Reshuffle() : null;
+        if(event != null)
+            event.begin();
+        table.nextEpoch();
+        env.metrics.reshuffled();
         for (int i = 0; i < table.slotToCard.length; i++) {
             if (table.slotToCard[i]!=null){
                 deck.add(table.slotToCard[i]);
                 table.removeCard(i);
+                if(event != null)
+                    event.cards++;
             }
         }
-        for (int i = 0; i < players.length; i++) {
-             if (!players[i].getHuman())
-                synchronized(players[i].aiLock){
-                    players[i].aiLock.notifyAll();
-                }
-        }
-       
         playerQueue.clear();
+        if(event == null)
+            return;
+        event.end();
+        if(event.shouldCommit()){
+            event.deckSize = deck.size();
+            event.commit();
+        }
     }
 
     /**
@@ -306,9 +359,6 @@ public class Dealer implements Runnable {
     private void finishProgram() {
         for (int i =players.length-1 ; i>=0 ;i--) {
             players[i].terminate();
-            synchronized (players[i].getPlayerThread()){
-                players[i].getPlayerThread().notifyAll();
-            }
             try {
                 playersThread[i].join();
             } catch (InterruptedException ignore) {}
@@ -316,49 +366,47 @@ public class Dealer implements Runnable {
     }
 
 
+    /**
+     * Reset the countdown. Between resets the user interface updates the countdown display by itself, from the
+     * published start time of the timer.
+     */
     private void reset() {
-        resetingTime = System.currentTimeMillis();
-        if (env.config.turnTimeoutMillis>0){
-            boolean toWarn = false;
-            if (env.config.turnTimeoutMillis <= env.config.turnTimeoutWarningMillis)
-                toWarn = true;
-            env.ui.setCountdown(env.config.turnTimeoutMillis,toWarn);
-        }
-        if (env.config.turnTimeoutMillis == 0)
-            env.ui.setElapsed(0);
+        resetingTime = env.clock.millis();
+        if (env.config.timing().turnTimeoutMillis >= 0)
+            env.ui.startTimer(resetingTime);
     }
 
-    private void removeCardsFromTable(Player player) {
-        if (player.tokenPlacement == null)
-            return;
-        if(playerTokensAreOk(player)){
-            int[] toRemove = new int[player.tokenPlacement.length];
-            for (int i = 0; i < player.tokenPlacement.length; i++) {
-                toRemove[i] = player.tokenPlacement[i];
-            }
-                for (int i = 0; i < toRemove.length; i++) {
-                    if(table.slotToCard[toRemove[i]] != null)
-                        table.removeCard(toRemove[i]);
-                }
-                for (int j = 0; j < players.length; j++) {
-                    for (int i = 0; i < toRemove.length; i++) {
-                        players[j].removeTokenFromSlot(toRemove[i]);
-                    }
-                }
-                reset();
+    private void removeCardsFromTable(Claim claim) {
+        for (int i = 0; i < claim.size(); i++) {
+            if(table.slotToCard[claim.slot(i)] != null)
+                table.removeCard(claim.slot(i));
         }
+        for (int j = 0; j < players.length; j++) {
+            for (int i = 0; i < claim.size(); i++) {
+                players[j].removeTokenFromSlot(claim.slot(i));
+            }
         }
+        reset();
+    }
+
+    /**
+     * @return - the number of cards left in the deck (read by the dealer thread, or once it is done).
+     */
+    int cardsInDeck() {
+        return deck.size();
+    }
 
     private void shuffleDeck() {
-        Collections.shuffle(deck);
+        Collections.shuffle(deck, env.dealerRandom);
     }
 
     private boolean isSetOnTable(){
-        List<Integer> onTable = new LinkedList<>();
+        int count = 0;
         for (int i = 0; i < env.config.tableSize; i++) {
-            if (table.slotToCard[i]!=null)
-                onTable.add(table.slotToCard[i]);
+            Integer card = table.slotToCard[i];
+            if (card != null)
+                onTable[count++] = card;
         }
-        return env.util.findSets(onTable, 1).size() != 0;
+        return env.util.containsSet(onTable, count);
     }
 }
@@ -0,0 +1,327 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.ThreadLogger;
+import bguspl.set.UserInterfaceDecorator;
+import bguspl.set.Util;
+import bguspl.set.UtilImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * A stress harness: plays games of computer players only, with the real dealer and player threads and no user
+ * interface, and checks the game's invariants while they run.
+ * While a game runs, the harness repeatedly takes the slot lock and checks that slotToCard[x] == y iff
+ * cardToSlot[y] == x, and that each player's tokens are consistent (their count matches the token slots, no slot
+ * twice, and only on cards once the player caught up with the table epoch). The dealer places cards without the
+ * slot lock, one side of the table at a time, so a mismatch between the two sides is only reported if it does not
+ * go away within a grace period, which the harness waits out after releasing the lock. Once a game
+ * is over, it checks that the scores add up to the points given and to the cards taken off the table as sets.
+ * It reports the claim throughput and the worst claim latency, and exits with 1 if an invariant was broken.
+ *
+ * Usage: GameStress [players] [games] [secondsPerGame] [Key=Value ...]. The Key=Value pairs override the harness
+ * configuration (e.g. TurnTimeoutSeconds=5 or Seed=42).
+ */
+public class GameStress {
+
+    /**
+     * The time between two invariant checks of a running game.
+     */
+    private static final long CHECK_INTERVAL_MILLIS = 1;
+
+    /**
+     * The time a card placement or removal in progress may take to show on both sides of the table.
+     */
+    private static final long PLACEMENT_GRACE_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    /**
+     * The maximum number of violations kept for the report.
+     */
+    private static final int MAX_REPORTED = 20;
+
+    private final Logger logger;
+    private final Properties properties;
+
+    private final List<String> violations = new ArrayList<>();
+    private long violationCount;
+
+    /**
+     * The totals of all the games played so far.
+     */
+    private int games;
+    private long checks;
+    private long claims;
+    private long points;
+    private long penalties;
+    private long reshuffles;
+    private long maxClaimLatencyNanos;
+    private long elapsedNanos;
+
+    /**
+     * The class constructor.
+     *
+     * @param logger     - the logger object.
+     * @param properties - the game configuration (computer players only).
+     */
+    public GameStress(Logger logger, Properties properties) {
+        this.logger = logger;
+        this.properties = properties;
+    }
+
+    /**
+     * The harness configuration: fast games (no freezes or table delay, short turns) with all the players playing
+     * as computer players.
+     *
+     * @param players - the number of computer players.
+     * @return        - the configuration properties.
+     */
+    public static Properties defaults(int players) {
+        Properties properties = new Properties();
+        properties.put("LogLevel", "WARNING");
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", Integer.toString(players));
+        properties.put("Hints", "False");
+        properties.put("TurnTimeoutSeconds", "1");
+        properties.put("PointFreezeSeconds", "0");
+        properties.put("PenaltyFreezeSeconds", "0");
+        properties.put("TableDelaySeconds", "0");
+        properties.put("EndGamePauseSeconds", "0");
+        properties.put("EventLogCapacity", "0");
+        return properties;
+    }
+
+    /**
+     * Plays a game, checking the invariants until it is over or its time is up.
+     *
+     * @param millis - the maximum time the game may run.
+     * @throws InterruptedException - if interrupted while the game runs.
+     */
+    public void play(long millis) throws InterruptedException {
+        Config config = new Config(logger, properties);
+        Util util = new UtilImpl(config);
+        Env env = new Env(logger, config, new UserInterfaceDecorator(logger, util, null), util);
+        Table table = new Table(env);
+        Player[] players = new Player[config.players];
+        Dealer dealer = new Dealer(env, table, players);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, false);
+        games++;
+
+        long start = System.nanoTime();
+        ThreadLogger dealerThread = new ThreadLogger(dealer, "dealer", logger, env.threads);
+        dealerThread.start();
+        long end = start + TimeUnit.MILLISECONDS.toNanos(millis);
+        while (dealerThread.isAlive() && System.nanoTime() - end < 0) {
+            checkRunning(env, table, players);
+            Thread.sleep(CHECK_INTERVAL_MILLIS);
+        }
+        dealer.terminate();
+        synchronized (dealer.dealerLock) {
+            dealer.dealerLock.notifyAll();
+        }
+        dealerThread.join();
+        elapsedNanos += System.nanoTime() - start;
+
+        checkOver(env, table, dealer, players);
+        claims += env.metrics.claimLatency.count();
+        reshuffles += env.metrics.getReshuffles();
+        maxClaimLatencyNanos = Math.max(maxClaimLatencyNanos, env.metrics.claimLatency.max());
+    }
+
+    /**
+     * Checks the table and the tokens of a running game, holding the slot lock.
+     */
+    private void checkRunning(Env env, Table table, Player[] players) throws InterruptedException {
+        boolean consistent;
+        Player.lockSlots(env);
+        try {
+            checks++;
+            consistent = isConsistent(table);
+            for (Player player : players)
+                checkTokens(table, player);
+        } finally {
+            Player.unlockSlots(env);
+        }
+        // the grace period is waited out without the lock, so the harness does not hold up the players
+        if (!consistent)
+            checkTable(table);
+    }
+
+    /**
+     * @return - true iff each slot and each card agree with each other right now.
+     */
+    private static boolean isConsistent(Table table) {
+        for (int slot = 0; slot < table.slotToCard.length; slot++)
+            if (!slotAgrees(table, slot))
+                return false;
+        for (int card = 0; card < table.cardToSlot.length; card++)
+            if (!cardAgrees(table, card))
+                return false;
+        return true;
+    }
+
+    /**
+     * Reports the slots and cards that do not agree with each other, unless they do within the grace period.
+     */
+    private void checkTable(Table table) {
+        for (int slot = 0; slot < table.slotToCard.length; slot++) {
+            int s = slot;
+            if (!settles(() -> slotAgrees(table, s))) {
+                Integer card = table.slotToCard[slot];
+                violation("slot " + slot + " holds card " + card + " but the card is in slot "
+                        + (card == null ? null : table.cardToSlot[card]));
+            }
+        }
+        for (int card = 0; card < table.cardToSlot.length; card++) {
+            int c = card;
+            if (!settles(() -> cardAgrees(table, c))) {
+                Integer slot = table.cardToSlot[card];
+                violation("card " + card + " is in slot " + slot + " but the slot holds card "
+                        + (slot == null ? null : table.slotToCard[slot]));
+            }
+        }
+    }
+
+    private static boolean slotAgrees(Table table, int slot) {
+        Integer card = table.slotToCard[slot];
+        return card == null || Integer.valueOf(slot).equals(table.cardToSlot[card]);
+    }
+
+    private static boolean cardAgrees(Table table, int card) {
+        Integer slot = table.cardToSlot[card];
+        return slot == null || Integer.valueOf(card).equals(table.slotToCard[slot]);
+    }
+
+    /**
+     * @return - true iff the check holds, waiting up to the grace period for a change in progress to complete.
+     */
+    private static boolean settles(BooleanSupplier check) {
+        long deadline = System.nanoTime() + PLACEMENT_GRACE_NANOS;
+        while (!check.getAsBoolean()) {
+            if (System.nanoTime() - deadline >= 0)
+                return false;
+            LockSupport.parkNanos(10_000);
+        }
+        return true;
+    }
+
+    private void checkTokens(Table table, Player player) {
+        int[] tokens = player.tokenPlacement;
+        int count = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            if (tokens[i] == -1)
+                continue;
+            count++;
+            for (int j = 0; j < i; j++)
+                if (tokens[j] == tokens[i])
+                    violation("player " + player.id + " has two tokens in slot " + tokens[i]);
+            // tokens of an older epoch are dropped lazily, by the player
+            if (player.epoch() == table.epoch() && table.slotToCard[tokens[i]] == null)
+                violation("player " + player.id + " has a token in empty slot " + tokens[i]);
+        }
+        if (count != player.numOfTokens)
+            violation("player " + player.id + " counts " + player.numOfTokens + " tokens but has " + count);
+    }
+
+    /**
+     * Checks the scores of a game that is over: they add up to the points given, and to the sets taken off the table.
+     */
+    private void checkOver(Env env, Table table, Dealer dealer, Player[] players) {
+        checkTable(table);
+        long scores = 0, given = 0;
+        for (Player player : players) {
+            scores += player.score();
+            given += env.metrics.getPoints()[player.id];
+            penalties += env.metrics.getPenalties()[player.id];
+        }
+        points += scores;
+        if (scores != given)
+            violation("the scores add up to " + scores + " but " + given + " points were given");
+        long taken = env.config.deckSize - dealer.cardsInDeck() - table.countCards();
+        if (taken != scores * env.config.featureSize)
+            violation(taken + " cards were taken off the table for " + scores + " points");
+    }
+
+    private void violation(String violation) {
+        violationCount++;
+        if (violations.size() < MAX_REPORTED)
+            violations.add("game " + games + ": " + violation);
+    }
+
+    /**
+     * @return - the number of invariant violations found so far.
+     */
+    public long violationCount() {
+        return violationCount;
+    }
+
+    /**
+     * @return - the number of claims the dealers checked so far.
+     */
+    public long claims() {
+        return claims;
+    }
+
+    /**
+     * @return - the number of reshuffles in the games so far.
+     */
+    public long reshuffles() {
+        return reshuffles;
+    }
+
+    /**
+     * @return - the number of invariant checks of the running games so far.
+     */
+    public long checks() {
+        return checks;
+    }
+
+    /**
+     * @return - a report of the games played so far: throughput, worst claim latency and violations.
+     */
+    public String report() {
+        double seconds = elapsedNanos / 1e9;
+        StringBuilder report = new StringBuilder()
+                .append(String.format("%d games in %.1fs, %d invariant checks", games, seconds, checks))
+                .append(System.lineSeparator())
+                .append(String.format("claims: %d (%.0f/s), points: %d (%.0f/s), penalties: %d, reshuffles: %d",
+                        claims, claims / seconds, points, points / seconds, penalties, reshuffles))
+                .append(System.lineSeparator())
+                .append(String.format("worst claim latency: %.3fms", maxClaimLatencyNanos / 1e6))
+                .append(System.lineSeparator())
+                .append(violationCount == 0 ? "no invariant violations" : violationCount + " invariant violations:");
+        for (String violation : violations)
+            report.append(System.lineSeparator()).append("  ").append(violation);
+        return report.toString();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+
+        int players = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        long seconds = args.length > 2 ? Long.parseLong(args[2]) : 10;
+        Properties properties = defaults(players);
+        for (int i = 3; i < args.length; i++) {
+            String[] pair = args[i].split("=", 2);
+            if (pair.length != 2) {
+                System.out.println("usage: GameStress [players] [games] [secondsPerGame] [Key=Value ...]");
+                return;
+            }
+            properties.put(pair[0], pair[1]);
+        }
+
+        GameStress stress = new GameStress(Logger.getLogger("bguspl.set.stress"), properties);
+        for (int game = 0; game < games; game++)
+            stress.play(TimeUnit.SECONDS.toMillis(seconds));
+        System.out.println(stress.report());
+        if (stress.violationCount() > 0)
+            System.exit(1);
+    }
+}
@@ -0,0 +1,141 @@
+package bguspl.set.ex;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded lock-free channel of key presses, from the input threads (the Swing event dispatch thread or an AI
+ * thread) to a player thread. Each press is kept as a (slot, table epoch, time) triple in preallocated primitive
+ * arrays, so offering a press never allocates, locks or blocks.
+ * Any number of threads may offer presses, but only the player thread may poll (or clear) the channel.
+ */
+public class KeyChannel {
+
+    /**
+     * The maximum number of presses waiting in the channel.
+     */
+    private final int capacity;
+
+    private final int mask;
+    private final int[] slots;
+    private final int[] epochs;
+    private final long[] nanos;
+
+    /**
+     * Per cell sequence numbers: a cell is free for the press numbered n when its sequence is n, and holds that
+     * press when its sequence is n + 1.
+     */
+    private final AtomicLongArray sequence;
+
+    /**
+     * The number of the next press to offer.
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * The number of the next press to poll (written by the player thread only).
+     */
+    private volatile long head;
+
+    /**
+     * The table epoch and the time of the last polled press (read and written by the player thread only).
+     */
+    private int polledEpoch;
+    private long polledNanos;
+
+    /**
+     * The class constructor.
+     *
+     * @param capacity - the maximum number of presses waiting in the channel.
+     */
+    public KeyChannel(int capacity) {
+        this.capacity = capacity;
+        int cells = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        mask = cells - 1;
+        slots = new int[cells];
+        epochs = new int[cells];
+        nanos = new long[cells];
+        sequence = new AtomicLongArray(cells);
+        for (int i = 0; i < cells; i++)
+            sequence.set(i, i);
+    }
+
+    /**
+     * Adds a key press to the channel, unless it is full.
+     *
+     * @param slot         - the slot corresponding to the key pressed.
+     * @param epoch        - the table epoch the key was pressed in (see Table::epoch).
+     * @param pressedNanos - the time (System::nanoTime) of the key press.
+     * @return             - true iff the press was added.
+     */
+    public boolean offer(int slot, int epoch, long pressedNanos) {
+        long position;
+        int cell;
+        do {
+            position = tail.get();
+            cell = (int) position & mask;
+            if (position - head >= capacity || sequence.get(cell) != position)
+                return false;
+        } while (!tail.compareAndSet(position, position + 1));
+        slots[cell] = slot;
+        epochs[cell] = epoch;
+        nanos[cell] = pressedNanos;
+        sequence.set(cell, position + 1); // publish the press to the player thread
+        return true;
+    }
+
+    /**
+     * Removes the oldest key press from the channel. Called by the player thread only.
+     *
+     * @return - the slot of the press, or -1 if the channel is empty (the epoch and the time of the press are then
+     *           available through polledEpoch and polledNanos).
+     */
+    public int poll() {
+        long position = head;
+        int cell = (int) position & mask;
+        if (sequence.get(cell) != position + 1)
+            return -1;
+        int slot = slots[cell];
+        polledEpoch = epochs[cell];
+        polledNanos = nanos[cell];
+        sequence.set(cell, position + mask + 1); // free the cell for the press one lap later
+        head = position + 1;
+        return slot;
+    }
+
+    /**
+     * @return - the table epoch of the last press returned by poll.
+     */
+    public int polledEpoch() {
+        return polledEpoch;
+    }
+
+    /**
+     * @return - the time (System::nanoTime) of the last press returned by poll.
+     */
+    public long polledNanos() {
+        return polledNanos;
+    }
+
+    /**
+     * Drops all the presses in the channel. Called by the player thread only.
+     */
+    public void clear() {
+        while (poll() != -1) ;
+    }
+
+    /**
+     * @return - true iff there is no press ready to be polled.
+     */
+    public boolean isEmpty() {
+        long position = head;
+        return sequence.get((int) position & mask) != position + 1;
+    }
+
+    /**
+     * @return - the number of presses in the channel (including presses that are still being offered).
+     */
+    public int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+}
@@ -1,9 +1,14 @@
 package bguspl.set.ex;
 
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.Arrays;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
 
 import bguspl.set.Env;
+import bguspl.set.GameEvents;
+import bguspl.set.LatencyHistogram;
+import bguspl.set.LockProfiler;
 import bguspl.set.ThreadLogger;
 
 /**
@@ -53,15 +58,35 @@ public class Player implements Runnable {
      * The current score of the player.
      */
     private int score;
-    public ConcurrentLinkedQueue<Integer> keyPressed = new ConcurrentLinkedQueue<>();
+    public final KeyChannel keyPressed;
     public int[] tokenPlacement;
     public int numOfTokens = 0;
     public static Semaphore slotLock = new Semaphore(1,true);
+
+    /**
+     * The time the slot lock was last acquired (written and read by its holder only, see lockSlots).
+     */
+    private static long slotLockedNanos;
     private Dealer dealer;
     public int pointOrPenalty = 0;
     public Object aiLock = new Object();
     public boolean canProceed = false;
 
+    /**
+     * The last table epoch this player has synchronized with (see Table::epoch).
+     */
+    private volatile int epoch;
+
+    /**
+     * The claim this player is waiting on a verdict for (null if none). Guarded by the dealer lock.
+     */
+    private Claim pendingClaim;
+
+    /**
+     * The latency from a key press to the token it placed (written by the player thread only).
+     */
+    private final LatencyHistogram tokenLatency = new LatencyHistogram();
+
 
     /**
      * The class constructor.
@@ -78,6 +103,8 @@ public class Player implements Runnable {
         this.id = id;
         this.human = human;
         this.dealer = dealer;
+        this.epoch = table.epoch();
+        keyPressed = new KeyChannel(env.config.featureSize);
         tokenPlacement = new int[env.config.featureSize];
         for (int i = 0; i < tokenPlacement.length; i++) {
             tokenPlacement[i] = -1;
@@ -92,23 +119,19 @@ public class Player implements Runnable {
         playerThread = Thread.currentThread();
         env.logger.info("thread " + Thread.currentThread().getName() + " starting.");
         if (!human) createArtificialIntelligence();
+        long requested = env.locks.request(LockProfiler.DEALER_MONITOR);
         synchronized(dealer){
+            env.locks.acquired(LockProfiler.DEALER_MONITOR, requested);
             dealer.notifyAll();
+            env.locks.released(LockProfiler.DEALER_MONITOR);
         }
         while (!terminate) {
-            synchronized(playerThread){
-                while(keyPressed.isEmpty() && !terminate){
-                    try {
-                        playerThread.wait();
-                    } catch (InterruptedException e) {}
-                }    
-            }
+            while(keyPressed.isEmpty() && !terminate)
+                LockSupport.park(this);
             placeToken();
         }
         if (!human) try {
-            synchronized (aiLock){
-                aiLock.notifyAll();
-            }
+            notifyAi();
             aiThread.join();
         } catch (InterruptedException ignored) {
         }
@@ -124,22 +147,26 @@ public class Player implements Runnable {
      */
     private void createArtificialIntelligence() {
         // note: this is a very, very smart AI (!)
-        aiThread = new Thread(() -> {
+        aiThread = new ThreadLogger(() -> {
             env.logger.info("thread " + Thread.currentThread().getName() + " starting.");
+            int lock = LockProfiler.aiLock(id);
             while (!terminate) {
+                long requested = env.locks.request(lock);
                 synchronized(aiLock){
+                    env.locks.acquired(lock, requested);
                     while(keyPressed.size() >= env.config.featureSize && !terminate){
                         try {
-                            aiLock.wait();
+                            env.locks.await(lock, aiLock, 0);
                         } catch (InterruptedException ignored) {}
                     }
+                    env.locks.released(lock);
                 }
-                int random = (int)(Math.random()*env.config.tableSize);
-                keyPressed(random);
+                int random = env.playerRandoms[id].nextInt(env.config.tableSize);
+                keyPressed(random, System.nanoTime());
                 //System.out.println(random);
             }
             env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
-        }, "computer-" + id);
+        }, "computer-" + id, env.logger, env.threads);
         aiThread.start();
     }
 
@@ -160,14 +187,19 @@ public class Player implements Runnable {
      * @param slot - the slot corresponding to the key pressed.
      */
     public void keyPressed(int slot) {
-        synchronized(playerThread){
-            if(keyPressed.size() < env.config.featureSize){
-                if(table.slotToCard[slot] != null){
-                    keyPressed.add(slot);
-                    playerThread.notifyAll();
-                }
-            }
-        }
+        keyPressed(slot, System.nanoTime());
+    }
+
+    /**
+     * This method is called when a key is pressed.
+     *
+     * @param slot         - the slot corresponding to the key pressed.
+     * @param pressedNanos - the time (System::nanoTime) of the key press.
+     */
+    public void keyPressed(int slot, long pressedNanos) {
+        // this runs on the input threads (e.g. the Swing event dispatch thread), so it must never lock or block
+        if(table.slotToCard[slot] != null && keyPressed.offer(slot, table.epoch(), pressedNanos))
+            LockSupport.unpark(playerThread);
     }
 
     /**
@@ -177,19 +209,24 @@ public class Player implements Runnable {
      * @post - the player's score is updated in the ui.
      */
     public void point() {
-        env.ui.setFreeze(id, env.config.pointFreezeMillis);
+        GameEvents.Freeze event = new GameEvents.Freeze();
+        event.begin();
+        env.metrics.point(id);
+        long freezeMillis = env.config.timing().pointFreezeMillis;
+        env.ui.setFreeze(id, freezeMillis);
         env.ui.setScore(id, ++score);
         try{
-            long timeToSleep = env.config.pointFreezeMillis;
+            long timeToSleep = freezeMillis;
             while (timeToSleep>=1000) {
                 timeToSleep = timeToSleep - 1000;
-                Thread.sleep(1000);
+                env.clock.sleep(1000);
                 env.ui.setFreeze(this.id, timeToSleep);
             }
         }
             catch(InterruptedException ignored){};
         pointOrPenalty = 0;
         canProceed = false;
+        commit(event, true);
         int ignored = table.countCards(); // this part is just for demonstration in the unit tests
     }
 
@@ -197,42 +234,104 @@ public class Player implements Runnable {
      * Penalize a player and perform other related actions.
      */
     public void penalty() {
-        env.ui.setFreeze(id, env.config.penaltyFreezeMillis);
+        GameEvents.Freeze event = new GameEvents.Freeze();
+        event.begin();
+        env.metrics.penalty(id);
+        long freezeMillis = env.config.timing().penaltyFreezeMillis;
+        env.ui.setFreeze(id, freezeMillis);
         try{
-            long timeToSleep = env.config.penaltyFreezeMillis;
+            long timeToSleep = freezeMillis;
             while (timeToSleep>=1000) {
                 timeToSleep = timeToSleep - 1000;
-                Thread.sleep(1000);
+                env.clock.sleep(1000);
                 env.ui.setFreeze(this.id, timeToSleep);
             }
         }
             catch(InterruptedException ignored){};
         pointOrPenalty = 0;
         canProceed = false;
+        commit(event, false);
+    }
+
+    private void commit(GameEvents.Freeze event, boolean point) {
+        event.end();
+        if(event.shouldCommit()){
+            event.player = id;
+            event.point = point;
+            event.commit();
+        }
+    }
+
+    /**
+     * Acquires the slot lock, recording the time spent waiting for it.
+     *
+     * @param env - the environment object.
+     * @throws InterruptedException - if interrupted while waiting.
+     */
+    static void lockSlots(Env env) throws InterruptedException {
+        long start = System.nanoTime();
+        long requested = env.locks.request(LockProfiler.SLOT_LOCK);
+        try {
+            slotLock.acquire();
+        } catch (InterruptedException e) {
+            env.locks.cancelled(LockProfiler.SLOT_LOCK);
+            throw e;
+        }
+        env.locks.acquired(LockProfiler.SLOT_LOCK, requested);
+        slotLockedNanos = System.nanoTime();
+        env.metrics.slotLockWait.record(slotLockedNanos - start);
+    }
+
+    /**
+     * Releases the slot lock, recording the time it was held.
+     *
+     * @param env - the environment object.
+     */
+    static void unlockSlots(Env env) {
+        env.metrics.slotLockHold.record(System.nanoTime() - slotLockedNanos);
+        env.locks.released(LockProfiler.SLOT_LOCK);
+        slotLock.release();
     }
 
     public int score() {
         return score;
     }
 
+    /**
+     * @return - the last table epoch this player has synchronized with (see Table::epoch).
+     */
+    int epoch() {
+        return epoch;
+    }
+
+    /**
+     * @return - the latency histogram from the key presses of the player to the tokens they placed.
+     */
+    public LatencyHistogram tokenLatency() {
+        return tokenLatency;
+    }
+
     private void placeToken() {
         while(!keyPressed.isEmpty()){
-            int slot = -1;
-            if(!human)
-                synchronized(aiLock) {
-                    if(!keyPressed.isEmpty()){
-                        slot = keyPressed.remove();
-                        aiLock.notifyAll();
-                    }
-                }
-            else slot = keyPressed.remove();
+            int slot = keyPressed.poll();
             if(slot == -1) return;
-            boolean checkPoint = false;
+            int pressedEpoch = keyPressed.polledEpoch();
+            long pressedNanos = keyPressed.polledNanos();
+            env.metrics.input.dequeued(pressedNanos);
+            if(!human)
+                notifyAi();
+            if(env.logger.isLoggable(Level.FINE))
+                env.logger.fine("player " + (id + 1) + " pressed slot " + slot + " ("
+                        + (System.nanoTime() - pressedNanos) / 1000 + "us ago)");
+            Claim claim = null;
             boolean placed = false;
             //if(table.slotToCard[slot] != null){
             try {
-                slotLock.acquire();
-                if(table.slotToCard[slot] != null){
+                lockSlots(env);
+                if(epoch != table.epoch())
+                    dropStaleState();
+                // a press made before the last reshuffle was aimed at the old table, so it is dropped
+                if(pressedEpoch == table.epoch() && table.slotToCard[slot] != null){
                     boolean found = false;
                     for (int i = 0; i < tokenPlacement.length && !found; i++) {
                         if(tokenPlacement[i] == slot){
@@ -246,34 +345,151 @@ public class Player implements Runnable {
                         if(tokenPlacement[i] == -1){
                             tokenPlacement[i] = slot;
                             numOfTokens++;
-                            table.placeToken(id, slot);
+                            table.placeToken(id, slot, pressedNanos);
+                            tokenLatency.record(System.nanoTime() - pressedNanos);
                             placed = true;
                         }
                     }
+                    if(placed && numOfTokens == env.config.featureSize)
+                        claim = createClaim(pressedNanos);
                 }
-                slotLock.release();
+                unlockSlots(env);
             }   catch (InterruptedException e) {}
-            if(numOfTokens == env.config.featureSize && placed){
-                dealer.playerQueue.add(this);
-                checkPoint = true;
+            if(claim != null){
+                GameEvents.Claim event = new GameEvents.Claim();
+                event.begin();
+                setPendingClaim(claim);
+                if(dealer.playerQueue.offer(claim))
+                    checkPoint(claim, event);
+                else {
+                    setPendingClaim(null);
+                    commit(event, claim, false, 0);
+                    removeTokens(); // so the player sees the claim did not go through, and may claim again
+                }
             }
-            if(checkPoint)
-                checkPoint();
         }
     }
 
-    private void checkPoint() {
+    /**
+     * Records the slots of the player's tokens and the cards in them as a claim.
+     * Called with the slot lock held.
+     *
+     * @param pressedNanos - the time of the key press that placed the last token.
+     * @return             - the claim, or null if one of the token slots is empty.
+     */
+    private Claim createClaim(long pressedNanos) {
+        int[] cards = new int[tokenPlacement.length];
+        for (int i = 0; i < tokenPlacement.length; i++) {
+            Integer card = table.slotToCard[tokenPlacement[i]];
+            if(card == null)
+                return null;
+            cards[i] = card;
+        }
+        return new Claim(this, tokenPlacement, cards, table.epoch(), table.version(), pressedNanos);
+    }
+
+    /**
+     * Takes all the tokens of the player off the table, e.g. after the claim they made was rejected.
+     */
+    private void removeTokens() {
+        try {
+            lockSlots(env);
+            // after a reshuffle the tokens are already off the table, and dropped once the player notices it
+            if(epoch == table.epoch()){
+                for (int i = 0; i < tokenPlacement.length; i++) {
+                    if(tokenPlacement[i] != -1){
+                        table.removeToken(id, tokenPlacement[i]);
+                        tokenPlacement[i] = -1;
+                    }
+                }
+                numOfTokens = 0;
+            }
+            unlockSlots(env);
+        } catch (InterruptedException ignored) {}
+    }
+
+    /**
+     * Wakes up the AI thread of the player, if it waits for the key press queue to drain.
+     */
+    private void notifyAi() {
+        int lock = LockProfiler.aiLock(id);
+        long requested = env.locks.request(lock);
+        synchronized(aiLock){
+            env.locks.acquired(lock, requested);
+            aiLock.notifyAll();
+            env.locks.released(lock);
+        }
+    }
+
+    private void setPendingClaim(Claim claim) {
+        long requested = env.locks.request(LockProfiler.DEALER_LOCK);
         synchronized(dealer.dealerLock){
+            env.locks.acquired(LockProfiler.DEALER_LOCK, requested);
+            pendingClaim = claim;
+            env.locks.released(LockProfiler.DEALER_LOCK);
+        }
+    }
+
+    private void checkPoint(Claim claim, GameEvents.Claim event) {
+        int verdict;
+        long requested = env.locks.request(LockProfiler.DEALER_LOCK);
+        synchronized(dealer.dealerLock){
+            env.locks.acquired(LockProfiler.DEALER_LOCK, requested);
             dealer.dealerLock.notifyAll();
             try {
-                while (!canProceed && numOfTokens == 3) 
-                    dealer.dealerLock.wait();
+                // every admitted claim gets a verdict (0 once it is stale), unless a reshuffle drops the queue
+                while (!canProceed && epoch == table.epoch())
+                    env.locks.await(LockProfiler.DEALER_LOCK, dealer.dealerLock, 0);
             } catch (InterruptedException ignored) {}
+            // from here on the dealer will ignore any late verdict on this claim
+            pendingClaim = null;
+            verdict = pointOrPenalty;
+            pointOrPenalty = 0;
+            canProceed = false;
+            env.locks.released(LockProfiler.DEALER_LOCK);
+        }
+        commit(event, claim, true, verdict);
+        if(verdict != 0)
+            env.metrics.input.claimJudged(id, claim.pressedNanos);
+        if(verdict == 1)
+            point();
+        else if(verdict == -1)
+            penalty();
+    }
+
+    private void commit(GameEvents.Claim event, Claim claim, boolean admitted, int verdict) {
+        event.end();
+        if(event.shouldCommit()){
+            event.player = id;
+            event.slots = Arrays.toString(claim.slots());
+            event.cards = Arrays.toString(claim.cards());
+            event.admitted = admitted;
+            event.verdict = verdict;
+            event.commit();
         }
-            if(pointOrPenalty == 1)
-                point();
-            else if(pointOrPenalty == -1)
-                penalty();
+    }
+
+    /**
+     * Called by the dealer, while holding the dealer lock, to announce the verdict on a claim of this player.
+     *
+     * @param claim   - the claim.
+     * @param verdict - 1 for a point, -1 for a penalty and 0 if the claim was dropped without a check.
+     */
+    void verdict(Claim claim, int verdict) {
+        if(claim != pendingClaim)
+            return; // the player has already moved on
+        pointOrPenalty = verdict;
+        canProceed = true;
+    }
+
+    /**
+     * Drops the tokens left over from a previous table epoch (the key presses of a previous epoch are dropped one
+     * by one, as they are polled). Called with the slot lock held.
+     */
+    private void dropStaleState() {
+        numOfTokens = 0;
+        Arrays.fill(tokenPlacement, -1);
+        epoch = table.epoch();
     }
 
     public boolean getHuman(){
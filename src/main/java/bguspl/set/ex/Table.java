@@ -1,6 +1,7 @@
 package bguspl.set.ex;
 
 import bguspl.set.Env;
+import bguspl.set.GameEvents;
 
 import java.util.Arrays;
 import java.util.List;
@@ -29,6 +30,17 @@ public class Table {
      */
     protected final Integer[] cardToSlot; // slot per card (if any)
 
+    /**
+     * The table epoch, bumped by the dealer every time all the cards are returned to the deck.
+     * Players compare it with the last epoch they have seen to drop their stale tokens and key presses lazily.
+     */
+    private volatile int epoch;
+
+    /**
+     * The table version, bumped every time a card is placed on the table or removed from it.
+     */
+    private volatile int version;
+
     /**
      * Constructor for testing.
      *
@@ -79,6 +91,28 @@ public class Table {
         return cards;
     }
 
+    /**
+     * @return - the current table epoch.
+     */
+    public int epoch() {
+        return epoch;
+    }
+
+    /**
+     * Starts a new table epoch, invalidating the tokens and key presses of all the players.
+     * Called only by the dealer, while holding the slot lock.
+     */
+    public void nextEpoch() {
+        epoch++;
+    }
+
+    /**
+     * @return - the current table version.
+     */
+    public int version() {
+        return version;
+    }
+
     /**
      * Places a card on the table in a grid slot.
      * @param card - the card id to place in the slot.
@@ -87,13 +121,16 @@ public class Table {
      * @post - the card placed is on the table, in the assigned slot.
      */
     public void placeCard(int card, int slot) {
+        GameEvents.TableChange event = begin();
         try {
-            Thread.sleep(env.config.tableDelayMillis);
+            env.clock.sleep(env.config.timing().tableDelayMillis);
         } catch (InterruptedException ignored) {}
 
         cardToSlot[card] = slot;
         slotToCard[slot] = card;
+        version++;
         env.ui.placeCard(card, slot);
+        commit(event, card, slot, true);
     }
 
     /**
@@ -101,13 +138,40 @@ public class Table {
      * @param slot - the slot from which to remove the card.
      */
     public void removeCard(int slot) {
+        GameEvents.TableChange event = begin();
         try {
-            Thread.sleep(env.config.tableDelayMillis);
+            env.clock.sleep(env.config.timing().tableDelayMillis);
         } catch (InterruptedException ignored) {}
-        cardToSlot[slotToCard[slot]] = null;
+        int card = slotToCard[slot];
+        cardToSlot[card] = null;
         slotToCard[slot] = null;
+        version++;
         env.ui.removeTokens(slot);
         env.ui.removeCard(slot);
+        commit(event, card, slot, false);
+    }
+
+    /**
+     * @return - a started table change event, or null if the event is not recorded.
+     */
+    private static GameEvents.TableChange begin() {
+        if (!GameEvents.TABLE_CHANGE.isEnabled())
+            return null;
+        GameEvents.TableChange event = new GameEvents.TableChange();
+        event.begin();
+        return event;
+    }
+
+    private static void commit(GameEvents.TableChange event, int card, int slot, boolean placed) {
+        if (event == null)
+            return;
+        event.end();
+        if (event.shouldCommit()) {
+            event.card = card;
+            event.slot = slot;
+            event.placed = placed;
+            event.commit();
+        }
     }
 
     /**
@@ -119,6 +183,17 @@ public class Table {
         env.ui.placeToken(player, slot);
     }
 
+    /**
+     * Places a player token on a grid slot, and traces the key press that placed it (see InputTrace).
+     * @param player       - the player the token belongs to.
+     * @param slot         - the slot on which to place the token.
+     * @param pressedNanos - the time (System::nanoTime) of the key press.
+     */
+    public void placeToken(int player, int slot, long pressedNanos) {
+        env.metrics.input.tokenPlaced(player, slot, pressedNanos);
+        placeToken(player, slot);
+    }
+
     /**
      * Removes a token of a player from a grid slot.
      * @param player - the player the token belongs to.
@@ -0,0 +1,79 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConfigWatcherTest {
+
+    private Path directory;
+    private Path file;
+    private Config config;
+    private ConfigWatcher watcher;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("config");
+        file = directory.resolve("config.properties");
+        Files.writeString(file, "LogLevel=INFO\nTurnTimeoutSeconds=60\nPenaltyFreezeSeconds=3\nHumanPlayers=1\n");
+        Logger logger = Logger.getAnonymousLogger();
+        config = new Config(logger, file.toString());
+        watcher = new ConfigWatcher(logger, config, file);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        watcher.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator)
+                Files.delete(path);
+        }
+    }
+
+    @Test
+    void start_ReloadsChangedFile() throws Exception {
+
+        watcher.start();
+        Files.writeString(file, "LogLevel=WARNING\nTurnTimeoutSeconds=30\nPenaltyFreezeSeconds=0.5\nHumanPlayers=2\n");
+        long deadline = System.currentTimeMillis() + 10000;
+        while (config.timing().version == 0 && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+
+        Config.Timing timing = config.timing();
+        assertEquals(1, timing.version);
+        assertEquals(30000, timing.turnTimeoutMillis);
+        assertEquals(500, timing.penaltyFreezeMillis);
+        assertEquals(Level.WARNING, timing.logLevel);
+        // the settings that are not reloaded keep their startup values
+        assertEquals(1, config.humanPlayers);
+    }
+
+    @Test
+    void reload_KeepsSnapshotOfUnchangedOrInvalidFile() throws IOException {
+
+        Config.Timing timing = config.timing();
+        assertNull(watcher.reload());
+        assertSame(timing, config.timing());
+
+        Files.writeString(file, "TurnTimeoutSeconds=soon\n");
+        assertNull(watcher.reload());
+        assertSame(timing, config.timing());
+
+        Files.writeString(file, "LogLevel=INFO\nTurnTimeoutSeconds=60\nPenaltyFreezeSeconds=3\nHints=True\n");
+        assertTrue(watcher.reload().hints);
+        assertEquals(1, config.timing().version);
+    }
+}
@@ -0,0 +1,47 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EnvTest {
+
+    private static Env createEnv(String seed) {
+        Properties properties = new Properties();
+        properties.put("Seed", seed);
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", "2");
+        Logger logger = Logger.getAnonymousLogger();
+        Config config = new Config(logger, properties);
+        return new Env(logger, config, null, new UtilImpl(config));
+    }
+
+    @Test
+    void randoms_SameSeedSameGame() {
+
+        Env first = createEnv("1234");
+        Env second = createEnv("1234");
+        assertTrue(first.config.seeded);
+        // a component draws the same numbers no matter how much the others drew before it
+        first.playerRandoms[0].nextLong();
+        assertEquals(first.dealerRandom.nextLong(), second.dealerRandom.nextLong());
+        assertEquals(first.playerRandoms[1].nextLong(), second.playerRandoms[1].nextLong());
+        assertNotEquals(first.playerRandoms[1].nextLong(), first.playerRandoms[0].nextLong());
+    }
+
+    @Test
+    void randoms_NoSeedNewGame() {
+
+        Env first = createEnv("0");
+        Env second = createEnv("0");
+        assertFalse(first.config.seeded);
+        assertNotEquals(first.config.seed, second.config.seed);
+        assertNotEquals(first.dealerRandom.nextLong(), second.dealerRandom.nextLong());
+    }
+}
@@ -0,0 +1,80 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameEventLogTest {
+
+    private Path path;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        path = Files.createTempFile("game", ".events");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    @Test
+    void close_DrainsAllEventsInOrder() throws IOException {
+
+        GameEventLog events = new GameEventLog(Logger.getAnonymousLogger(), path, 16);
+        events.record(GameEventLog.CARD_PLACED, GameEventLog.NONE, 3, 42);
+        events.record(GameEventLog.TOKEN_PLACED, 1, 3, GameEventLog.NONE);
+        events.record(GameEventLog.SCORE, 1, GameEventLog.NONE, 7);
+        events.close();
+
+        List<String> read = new ArrayList<>();
+        long count = GameJournal.read(path, (type, player, slot, value, nanos) ->
+                read.add(type + " " + player + " " + slot + " " + value));
+
+        assertEquals(3, count);
+        assertEquals(List.of("1 -1 3 42", "3 1 3 -1", "10 1 -1 7"), read);
+    }
+
+    @Test
+    void record_ManyThreadsMoreEventsThanTheRing() throws Exception {
+
+        GameEventLog events = new GameEventLog(Logger.getAnonymousLogger(), path, 64);
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            int player = i;
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 10_000; j++)
+                    events.record(GameEventLog.TOKEN_PLACED, player, j % 12, j);
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        events.close();
+
+        // every event is either in the file, in the order each thread recorded it, or counted in a DROPPED event
+        long[] last = {-1, -1, -1, -1};
+        long[] recorded = {0, 0};
+        GameJournal.read(path, (type, player, slot, value, nanos) -> {
+            if (type == GameEventLog.DROPPED) {
+                recorded[1] += value;
+                return;
+            }
+            assertTrue(value > last[player]);
+            last[player] = value;
+            recorded[0]++;
+        });
+        assertEquals(events.dropped(), recorded[1]);
+        assertEquals(4 * 10_000, recorded[0] + recorded[1]);
+    }
+}
@@ -0,0 +1,44 @@
+package bguspl.set;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GameEventsTest {
+
+    @Test
+    void findSets_RecordedWhileRecording() throws Exception {
+
+        Properties properties = new Properties();
+        properties.put("Rows", "2");
+        properties.put("Columns", "2");
+        Config config = new Config(Logger.getAnonymousLogger(), properties);
+        Util util = new UtilImpl(config);
+
+        Path file = Files.createTempFile("events", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("bguspl.set.FindSets");
+            recording.start();
+            util.findSets(List.of(0, 1, 2, 3), 5); // only cards 0, 1 and 2 make a set
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            assertEquals(1, events.size());
+            assertEquals(4, events.get(0).getInt("cards"));
+            assertEquals(5, events.get(0).getInt("requested"));
+            assertEquals(1, events.get(0).getInt("found"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class GameMetricsTest {
+
+    private GameMetrics metrics;
+    private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+    @BeforeEach
+    void setUp() {
+        metrics = new GameMetrics(2, 4);
+        metrics.register(Logger.getAnonymousLogger());
+    }
+
+    @AfterEach
+    void tearDown() {
+        metrics.unregister();
+    }
+
+    @Test
+    void register_CountersVisibleOverJmx() throws Exception {
+
+        metrics.point(1);
+        metrics.point(1);
+        metrics.penalty(0);
+        metrics.reshuffled();
+        metrics.claimQueue(() -> 3);
+
+        ObjectName name = new ObjectName("bguspl.set:type=GameMetrics");
+        assertArrayEquals(new long[]{0, 2}, (long[]) server.getAttribute(name, "Points"));
+        assertArrayEquals(new long[]{1, 0}, (long[]) server.getAttribute(name, "Penalties"));
+        assertEquals(1L, server.getAttribute(name, "Reshuffles"));
+        assertEquals(3, server.getAttribute(name, "ClaimQueueDepth"));
+    }
+
+    @Test
+    void register_HistogramsVisibleOverJmx() throws Exception {
+
+        metrics.claimLatency.record(2_000_000);
+        metrics.claimLatency.record(4_000_000);
+
+        ObjectName name = new ObjectName("bguspl.set:type=GameMetrics,histogram=claimLatency");
+        assertEquals(2L, server.getAttribute(name, "Count"));
+        assertEquals(4_000L, server.getAttribute(name, "MaxMicros"));
+
+        server.invoke(new ObjectName("bguspl.set:type=GameMetrics"), "resetHistograms", null, null);
+        assertEquals(0L, server.getAttribute(name, "Count"));
+    }
+
+    @Test
+    void unregister_RemovesAllBeans() throws Exception {
+
+        metrics.unregister();
+        assertFalse(server.isRegistered(new ObjectName("bguspl.set:type=GameMetrics")));
+        assertEquals(0, server.queryNames(new ObjectName("bguspl.set:*"), null).size());
+    }
+}
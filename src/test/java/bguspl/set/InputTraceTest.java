@@ -0,0 +1,45 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InputTraceTest {
+
+    private InputTrace trace;
+
+    @BeforeEach
+    void setUp() {
+        trace = new InputTrace(2, 12);
+    }
+
+    @Test
+    void tokenPainted_RecordedOncePerPlacedToken() {
+
+        long pressedNanos = System.nanoTime() - 5_000_000;
+        trace.dequeued(pressedNanos);
+        trace.tokenPlaced(1, 7, pressedNanos);
+        trace.tokenPainted(1, 7);
+        trace.tokenPainted(1, 7); // a repaint of the same token
+        trace.tokenPainted(0, 7); // a token that was not traced
+
+        assertEquals(1, trace.dequeued.count());
+        assertEquals(1, trace.placed.count());
+        assertEquals(1, trace.painted.count());
+        assertTrue(trace.painted.max() >= 5_000_000);
+    }
+
+    @Test
+    void freezePainted_OnlyAfterAClaimWasJudged() {
+
+        trace.freezePainted(0);
+        assertEquals(0, trace.freezePainted.count());
+
+        trace.claimJudged(0, System.nanoTime());
+        trace.freezePainted(0);
+        trace.freezePainted(0);
+        assertEquals(1, trace.freezePainted.count());
+    }
+}
@@ -0,0 +1,42 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void percentile_Empty() {
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.percentile(99));
+    }
+
+    @Test
+    void percentile_WithinBucketPrecision() {
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 1000; i++)
+            histogram.record(i * 1000);
+
+        assertEquals(1000, histogram.count());
+        assertEquals(1_000_000, histogram.max());
+        assertEquals(500_500, histogram.mean());
+        long p50 = histogram.percentile(50);
+        assertTrue(p50 >= 500_000 && p50 <= 500_000 * 1.07, "p50 = " + p50);
+        long p99 = histogram.percentile(99);
+        assertTrue(p99 >= 990_000 && p99 <= 1_000_000, "p99 = " + p99);
+    }
+
+    @Test
+    void record_NegativeAsZero() {
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        assertEquals(0, histogram.max());
+        assertEquals(0, histogram.percentile(100));
+    }
+}
@@ -0,0 +1,77 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LockProfilerTest {
+
+    private final Semaphore lock = new Semaphore(1);
+
+    private void acquire(LockProfiler profiler) throws InterruptedException {
+        long requested = profiler.request(LockProfiler.SLOT_LOCK);
+        lock.acquire();
+        profiler.acquired(LockProfiler.SLOT_LOCK, requested);
+    }
+
+    private void release(LockProfiler profiler) {
+        profiler.released(LockProfiler.SLOT_LOCK);
+        lock.release();
+    }
+
+    @Test
+    void acquired_ContendedStacksWritten() throws Exception {
+
+        LockProfiler profiler = new LockProfiler(true, 2);
+        acquire(profiler);
+        CountDownLatch requested = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            try {
+                requested.countDown();
+                acquire(profiler);
+                release(profiler);
+            } catch (InterruptedException ignored) {}
+        }, "player 1");
+        waiter.start();
+        requested.await();
+        Thread.sleep(50); // let the waiter block
+        release(profiler);
+        waiter.join();
+
+        Path file = Files.createTempFile("locks", ".collapsed");
+        try {
+            profiler.writeStacks(file);
+            List<String> stacks = Files.readAllLines(file);
+            assertEquals(1, stacks.size());
+            assertTrue(stacks.get(0).startsWith("player;"), stacks.get(0));
+            assertTrue(stacks.get(0).contains("LockProfilerTest.acquire;[slotLock] "), stacks.get(0));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void request_DisabledRecordsNothing() throws Exception {
+
+        LockProfiler profiler = new LockProfiler(false, 2);
+        acquire(profiler);
+        release(profiler);
+
+        Path file = Files.createTempFile("locks", ".collapsed");
+        try {
+            profiler.writeStacks(file);
+            assertEquals(0, Files.readAllLines(file).size());
+        } finally {
+            Files.delete(file);
+        }
+        profiler.report(Logger.getAnonymousLogger());
+    }
+}
@@ -0,0 +1,92 @@
+package bguspl.set;
+
+import bguspl.set.ex.Player;
+import bguspl.set.ex.Table;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RemoteInputServerTest {
+
+    private final List<String> presses = new CopyOnWriteArrayList<>();
+    private RemoteInputServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Properties properties = new Properties();
+        properties.put("Rows", "2");
+        properties.put("Columns", "2");
+        properties.put("HumanPlayers", "2");
+        properties.put("PlayerKeys1", "81,87,69,82");
+        properties.put("PlayerKeys2", "85,73,79,80");
+        Logger logger = Logger.getAnonymousLogger();
+        Config config = new Config(logger, properties);
+        Env env = new Env(logger, config, new UiCommandQueueTest.RecordingUserInterface(), new UtilImpl(config));
+        Table table = new Table(env);
+        Player[] players = new Player[config.players];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = new Player(env, null, table, i, true) {
+                @Override
+                public void keyPressed(int slot, long pressedNanos) {
+                    presses.add(id + " " + slot);
+                }
+            };
+        }
+        server = new RemoteInputServer(logger, config, players, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    private static void press(DataOutputStream out, int player, int slot) throws IOException {
+        out.writeShort(player);
+        out.writeShort(slot);
+    }
+
+    private void awaitPresses(long count) throws InterruptedException {
+        for (int i = 0; i < 500 && server.presses() + server.rejected() < count; i++)
+            Thread.sleep(10);
+    }
+
+    @Test
+    void read_PassesPressesToPlayers() throws Exception {
+
+        try (Socket socket = new Socket("localhost", server.port())) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            press(out, 1, 2);
+            press(out, 0, 3);
+            out.flush();
+            awaitPresses(2);
+        }
+        assertEquals(List.of("1 2", "0 3"), presses);
+    }
+
+    @Test
+    void read_InvalidFrameDisconnects() throws Exception {
+
+        try (Socket socket = new Socket("localhost", server.port())) {
+            socket.setSoTimeout(5000);
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            press(out, 0, 1);
+            press(out, 7, 1);
+            press(out, 1, 1);
+            out.flush();
+
+            assertEquals(-1, socket.getInputStream().read());
+        }
+        assertEquals(List.of("0 1"), presses);
+        assertEquals(1, server.rejected());
+    }
+}
@@ -0,0 +1,85 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static bguspl.set.GameEventLog.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplayValidatorTest {
+
+    private ReplayValidator validator;
+
+    @BeforeEach
+    void setUp() {
+        Properties properties = new Properties();
+        properties.put("Rows", "2");
+        properties.put("Columns", "2");
+        properties.put("HumanPlayers", "2");
+        properties.put("PlayerKeys1", "81,87,69,82");
+        properties.put("PlayerKeys2", "85,73,79,80");
+        Config config = new Config(Logger.getAnonymousLogger(), properties);
+        validator = new ReplayValidator(config, new UtilImpl(config));
+
+        // cards 0, 1 and 2 only differ in their last feature, so they are a set
+        for (int slot = 0; slot < 3; slot++)
+            validator.event(CARD_PLACED, NONE, slot, slot, 0);
+    }
+
+    private void claim(int player, int verdict) {
+        for (int slot = 0; slot < 3; slot++) {
+            validator.event(TOKEN_PLACED, player, slot, NONE, 0);
+            validator.event(CLAIM, player, slot, slot, 0);
+        }
+        validator.event(VERDICT, player, NONE, verdict, 0);
+    }
+
+    @Test
+    void event_PointForASetOnTheTable() {
+
+        claim(0, 1);
+        validator.event(SCORE, 0, NONE, 1, 0);
+        for (int slot = 0; slot < 3; slot++)
+            validator.event(CARD_REMOVED, NONE, slot, NONE, 0);
+
+        assertEquals(0, validator.violations(), validator.report());
+    }
+
+    @Test
+    void event_PenaltyForASet() {
+
+        claim(1, -1);
+        assertEquals(1, validator.violations());
+    }
+
+    @Test
+    void event_ScoreWithoutAPoint() {
+
+        validator.event(SCORE, 0, NONE, 1, 0);
+        assertEquals(1, validator.violations());
+    }
+
+    @Test
+    void event_NotVerifiedAfterDroppedEvents() {
+
+        validator.event(DROPPED, NONE, NONE, 5, 0);
+        // the card removal was dropped, so this placement looks like a violation but is not reported
+        validator.event(CARD_PLACED, NONE, 0, 7, 0);
+
+        assertEquals(0, validator.violations());
+        assertEquals(5, validator.dropped());
+        assertTrue(validator.report().contains("only the first 3 events were verified"), validator.report());
+    }
+
+    @Test
+    void event_CardPlacedTwice() {
+
+        validator.event(CARD_PLACED, NONE, 3, 1, 0);
+        validator.event(CARD_PLACED, NONE, 0, 5, 0);
+        assertEquals(2, validator.violations());
+    }
+}
@@ -0,0 +1,66 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ThreadAccountingTest {
+
+    private static volatile Object sink;
+
+    @Test
+    void finished_KeepsTotalsOfTerminatedThreads() throws InterruptedException {
+
+        ThreadAccounting accounting = new ThreadAccounting();
+        ThreadLogger thread = new ThreadLogger(() -> {
+            for (int i = 0; i < 1000; i++)
+                sink = new byte[1024];
+        }, "allocator", Logger.getAnonymousLogger(), accounting);
+        thread.start();
+        thread.join();
+
+        assertEquals(List.of(thread), accounting.threads());
+        assertTrue(accounting.cpuNanos(thread) >= 0);
+        long allocated = accounting.allocatedBytes(thread);
+        assertTrue(allocated == -1 || allocated >= 1000 * 1024, "allocated " + allocated);
+    }
+
+    @Test
+    void report_ListsEachThread() throws InterruptedException {
+
+        ThreadAccounting accounting = new ThreadAccounting();
+        Logger logger = Logger.getAnonymousLogger();
+        List<String> messages = new ArrayList<>();
+        logger.addHandler(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                messages.add(record.getMessage());
+            }
+
+            @Override
+            public void flush() {}
+
+            @Override
+            public void close() {}
+        });
+        for (String name : new String[]{"player 0", "computer-0"}) {
+            ThreadLogger thread = new ThreadLogger(() -> {}, name, logger, accounting);
+            thread.start();
+            thread.join();
+        }
+        accounting.report(logger, "usage:");
+
+        assertEquals(1, messages.size());
+        String[] lines = messages.get(0).split(System.lineSeparator());
+        assertEquals(3, lines.length);
+        assertTrue(lines[1].contains("player 0") && lines[1].contains("TERMINATED"), lines[1]);
+        assertTrue(lines[2].contains("computer-0"), lines[2]);
+    }
+}
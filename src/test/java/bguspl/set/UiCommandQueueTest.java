@@ -0,0 +1,155 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UiCommandQueueTest {
+
+    private VirtualClock clock;
+    private UiCommandQueue commands;
+    private RecordingUserInterface ui;
+
+    @BeforeEach
+    void setUp() {
+        clock = new VirtualClock(100000, false);
+        commands = new UiCommandQueue(config("60", "5"), clock);
+        ui = new RecordingUserInterface();
+    }
+
+    private static Config config(String turnTimeoutSeconds, String turnTimeoutWarningSeconds) {
+        Properties properties = new Properties();
+        properties.put("Rows", "2");
+        properties.put("Columns", "2");
+        properties.put("HumanPlayers", "2");
+        properties.put("PlayerKeys1", "81,87,69,82");
+        properties.put("PlayerKeys2", "85,73,79,80");
+        properties.put("TurnTimeoutSeconds", turnTimeoutSeconds);
+        properties.put("TurnTimeoutWarningSeconds", turnTimeoutWarningSeconds);
+        return new Config(Logger.getAnonymousLogger(), properties);
+    }
+
+    @Test
+    void flush_NothingPosted() {
+
+        commands.flush(ui);
+        assertTrue(ui.calls.isEmpty());
+    }
+
+    @Test
+    void flush_CoalescesCommandsOnTheSameElement() {
+
+        commands.placeCard(5, 1);
+        commands.removeCard(1);
+        commands.placeCard(7, 1);
+        commands.setCountdown(3000, false);
+        commands.setCountdown(2000, false);
+        commands.setScore(0, 1);
+        commands.setScore(0, 2);
+        commands.flush(ui);
+
+        assertEquals(List.of("placeCard 7 1", "setCountdown 2000 false", "setScore 0 2"), ui.calls);
+    }
+
+    @Test
+    void flush_AppliesTokensPerSlot() {
+
+        commands.placeToken(1, 3);
+        commands.placeToken(0, 3);
+        commands.removeToken(1, 3);
+        commands.flush(ui);
+
+        assertEquals(List.of("placeToken 0 3", "removeToken 1 3"), ui.calls);
+    }
+
+    @Test
+    void flush_AppliesEachCommandOnce() {
+
+        commands.setFreeze(1, 1000);
+        commands.setElapsed(4000);
+        commands.flush(ui);
+        commands.flush(ui);
+
+        assertEquals(List.of("setElapsed 4000", "setFreeze 1 1000"), ui.calls);
+    }
+
+    @Test
+    void flush_RunningTimerShownOncePerSecond() {
+
+        commands.startTimer(clock.millis());
+        commands.flush(ui);
+        commands.flush(ui);
+
+        assertEquals(List.of("setCountdown 60000 false"), ui.calls);
+    }
+
+    @Test
+    void flush_RunningTimerFollowsTheGameClock() {
+
+        commands.startTimer(clock.millis());
+        commands.flush(ui);
+        clock.advance(1000);
+        commands.flush(ui);
+
+        assertEquals(List.of("setCountdown 60000 false", "setCountdown 59000 false"), ui.calls);
+    }
+
+    @Test
+    void flush_RunningTimerWarnsNearTheTimeout() {
+
+        commands.startTimer(clock.millis() - 58000);
+        commands.flush(ui);
+
+        assertEquals(1, ui.calls.size());
+        assertTrue(ui.calls.get(0).startsWith("setCountdown ") && ui.calls.get(0).endsWith(" true"));
+    }
+
+    @Test
+    void flush_RunningTimerShowsElapsedTimeWithoutTimeout() {
+
+        commands = new UiCommandQueue(config("0", "0"), clock);
+        commands.startTimer(clock.millis() - 3500);
+        commands.flush(ui);
+
+        assertEquals(List.of("setElapsed 3000"), ui.calls);
+    }
+
+    static class RecordingUserInterface implements UserInterface, UiCommandQueue.Display {
+
+        final List<String> calls = new ArrayList<>();
+
+        @Override
+        public void placeCard(int card, int slot) { calls.add("placeCard " + card + " " + slot); }
+        @Override
+        public void removeCard(int slot) { calls.add("removeCard " + slot); }
+        @Override
+        public void placeToken(int player, int slot) { calls.add("placeToken " + player + " " + slot); }
+        @Override
+        public void removeTokens() { calls.add("removeTokens"); }
+        @Override
+        public void removeTokens(int slot) { calls.add("removeTokens " + slot); }
+        @Override
+        public void removeToken(int player, int slot) { calls.add("removeToken " + player + " " + slot); }
+        @Override
+        public void setCountdown(long millies, boolean warn) { calls.add("setCountdown " + millies + " " + warn); }
+        @Override
+        public void setElapsed(long millies) { calls.add("setElapsed " + millies); }
+        @Override
+        public void startTimer(long startMillis) { calls.add("startTimer " + startMillis); }
+        @Override
+        public void setFreeze(int player, long millies) { calls.add("setFreeze " + player + " " + millies); }
+        @Override
+        public void setScore(int player, int score) { calls.add("setScore " + player + " " + score); }
+        @Override
+        public void announceWinner(int[] players) { calls.add("announceWinner"); }
+        @Override
+        public void dispose() { calls.add("dispose"); }
+    }
+}
@@ -0,0 +1,94 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static bguspl.set.GameEventLog.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UserInterfaceNetworkTest {
+
+    private UserInterfaceNetwork ui;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Properties properties = new Properties();
+        properties.put("Rows", "2");
+        properties.put("Columns", "2");
+        properties.put("HumanPlayers", "2");
+        properties.put("PlayerKeys1", "81,87,69,82");
+        properties.put("PlayerKeys2", "85,73,79,80");
+        Config config = new Config(Logger.getAnonymousLogger(), properties);
+        ui = new UserInterfaceNetwork(Logger.getAnonymousLogger(), config, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ui.dispose();
+    }
+
+    /**
+     * Reads the stream until it ends.
+     */
+    private static List<String> watch(Socket socket) throws IOException {
+        List<String> events = new ArrayList<>();
+        SpectatorClient.watch(socket, (type, player, slot, value, nanos) ->
+                events.add(type + " " + player + " " + slot + " " + value));
+        return events;
+    }
+
+    @Test
+    void stream_SnapshotThenLiveEvents() throws Exception {
+
+        ui.placeCard(7, 2);
+        ui.placeToken(1, 2);
+        Thread.sleep(100); // let the selector thread send the events (to no one)
+
+        try (Socket socket = new Socket("localhost", ui.port())) {
+            socket.setSoTimeout(5000);
+            Thread.sleep(100); // let the selector thread accept the client
+            ui.setScore(0, 1);
+            ui.removeCard(2);
+            ui.dispose();
+
+            assertEquals(List.of(
+                    CARD_PLACED + " -1 2 7",
+                    SCORE + " 0 -1 0",
+                    TOKEN_PLACED + " 1 2 -1",
+                    SCORE + " 1 -1 0",
+                    SCORE + " 0 -1 1",
+                    CARD_REMOVED + " -1 2 -1"), watch(socket));
+        }
+    }
+
+    @Test
+    void stream_ManyClients() throws Exception {
+
+        List<Socket> sockets = new ArrayList<>();
+        try {
+            for (int i = 0; i < 50; i++) {
+                Socket socket = new Socket("localhost", ui.port());
+                socket.setSoTimeout(5000);
+                sockets.add(socket);
+            }
+            Thread.sleep(200);
+            for (int slot = 0; slot < 4; slot++)
+                ui.placeCard(slot, slot);
+            ui.dispose();
+
+            for (Socket socket : sockets)
+                assertEquals(2 + 4, watch(socket).size()); // the two scores of the snapshot, then the cards
+        } finally {
+            for (Socket socket : sockets)
+                socket.close();
+        }
+    }
+}
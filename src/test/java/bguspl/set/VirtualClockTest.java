@@ -0,0 +1,86 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VirtualClockTest {
+
+    private static void awaitWaiters(VirtualClock clock, int waiters) throws InterruptedException {
+        while (clock.waiters() < waiters)
+            Thread.sleep(1);
+    }
+
+    private static void awaitDeadline(VirtualClock clock, long deadline) throws InterruptedException {
+        while (clock.nextDeadline() != deadline)
+            Thread.sleep(1);
+    }
+
+    @Test
+    void sleep_WakesWhenAdvancedPastDeadline() throws InterruptedException {
+
+        VirtualClock clock = new VirtualClock();
+        AtomicLong wokeAt = new AtomicLong(-1);
+        Thread sleeper = new Thread(() -> {
+            try {
+                clock.sleep(1000);
+                wokeAt.set(clock.millis());
+            } catch (InterruptedException ignored) {}
+        });
+        sleeper.start();
+        awaitWaiters(clock, 1);
+        assertEquals(1000, clock.nextDeadline());
+
+        clock.advance(999);
+        sleeper.join(50);
+        assertTrue(sleeper.isAlive());
+
+        clock.advance(1);
+        sleeper.join(10000);
+        assertFalse(sleeper.isAlive());
+        assertEquals(1000, wokeAt.get());
+        assertEquals(0, clock.waiters());
+    }
+
+    @Test
+    void await_TimesOutOnAdvanceOrNotify() throws InterruptedException {
+
+        VirtualClock clock = new VirtualClock(5000, false);
+        Object monitor = new Object();
+        Thread waiter = new Thread(() -> {
+            synchronized (monitor) {
+                try {
+                    clock.await(monitor, 60000);
+                    clock.await(monitor, 60000);
+                } catch (InterruptedException ignored) {}
+            }
+        });
+        waiter.start();
+
+        awaitDeadline(clock, 65000);
+        assertTrue(clock.advanceToNextDeadline());
+        assertEquals(65000, clock.millis());
+
+        // waiting again, from the new time
+        awaitDeadline(clock, 125000);
+        synchronized (monitor) {
+            monitor.notifyAll();
+        }
+        waiter.join(10000);
+        assertFalse(waiter.isAlive());
+        assertFalse(clock.advanceToNextDeadline());
+    }
+
+    @Test
+    void sleep_AutoAdvanceDoesNotBlock() throws InterruptedException {
+
+        VirtualClock clock = new VirtualClock(0, true);
+        clock.sleep(60000);
+        clock.sleep(0);
+        assertEquals(60000, clock.millis());
+    }
+}
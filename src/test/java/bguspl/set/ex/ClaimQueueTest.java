@@ -0,0 +1,156 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClaimQueueTest {
+
+    private Env env;
+    private Table table;
+
+    private ClaimQueue createQueue(String maxInFlight, String claimsPerSecond) {
+        return createQueue(maxInFlight, claimsPerSecond, "0");
+    }
+
+    private ClaimQueue createQueue(String maxInFlight, String claimsPerSecond, String arbitrationSeconds) {
+        Properties properties = new Properties();
+        properties.put("ClaimArbitrationSeconds", arbitrationSeconds);
+        properties.put("MaxClaimsInFlight", maxInFlight);
+        properties.put("ClaimsPerSecond", claimsPerSecond);
+        return createQueue(properties);
+    }
+
+    private ClaimQueue createQueue(Properties properties) {
+        properties.put("TableDelaySeconds", "0");
+        TableTest.MockLogger logger = new TableTest.MockLogger();
+        Config config = new Config(logger, properties);
+        env = new Env(logger, config, new TableTest.MockUserInterface(), new TableTest.MockUtil());
+        table = new Table(env);
+        return new ClaimQueue(config, config.players);
+    }
+
+    private Claim claim(int player, int... slots) {
+        return claim(player, System.nanoTime(), slots);
+    }
+
+    private Claim claim(int player, long pressedNanos, int... slots) {
+        return new Claim(new Player(env, null, table, player, false), slots, new int[slots.length], table.epoch(), table.version(), pressedNanos);
+    }
+
+    @Test
+    void offer_AdmitsAndPollsInOrder() {
+
+        ClaimQueue queue = createQueue("1", "0");
+        Claim first = claim(0, 0, 1, 2);
+        Claim second = claim(1, 3, 4, 5);
+        assertTrue(queue.offer(first));
+        assertTrue(queue.offer(second));
+        assertEquals(2, queue.depth());
+        assertSame(first, queue.poll());
+        assertSame(second, queue.poll());
+        assertNull(queue.poll());
+        assertEquals(0, queue.depth());
+    }
+
+    @Test
+    void poll_OrdersClaimsByPressTime() {
+
+        ClaimQueue queue = createQueue("1", "0");
+        long now = System.nanoTime();
+        Claim late = claim(0, now - 1000, 0, 1, 2);
+        Claim early = claim(1, now - 2000, 3, 4, 5);
+        assertTrue(queue.offer(late));
+        assertTrue(queue.offer(early));
+        assertSame(early, queue.poll());
+        assertSame(late, queue.poll());
+    }
+
+    @Test
+    void poll_SeededSimulationOrdersClaimsByVersionAndPlayer() {
+
+        Properties properties = new Properties();
+        properties.put("Seed", "42");
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", "3");
+        properties.put("ClaimArbitrationSeconds", "0");
+        ClaimQueue queue = createQueue(properties);
+        long now = System.nanoTime();
+        Claim second = claim(2, now - 2000, 0, 1, 2);
+        Claim first = claim(1, now - 1000, 3, 4, 5);
+        table.placeCard(0, 6); // a new table version
+        Claim third = claim(0, now - 3000, 6, 7, 8);
+        assertTrue(queue.offer(third));
+        assertTrue(queue.offer(second));
+        assertTrue(queue.offer(first));
+        assertSame(first, queue.poll());
+        assertSame(second, queue.poll());
+        assertSame(third, queue.poll());
+    }
+
+    @Test
+    void poll_HoldsClaimsForArbitrationWindow() {
+
+        ClaimQueue queue = createQueue("1", "0", "60");
+        assertTrue(queue.offer(claim(0, 0, 1, 2)));
+        assertTrue(queue.nanosUntilReady() > 0);
+        assertNull(queue.poll());
+        assertEquals(1, queue.depth());
+    }
+
+    @Test
+    void offer_RejectsClaimsBeyondInFlightLimit() {
+
+        ClaimQueue queue = createQueue("1", "0");
+        assertTrue(queue.offer(claim(0, 0, 1, 2)));
+        assertFalse(queue.offer(claim(0, 3, 4, 5)));
+        assertEquals(1, queue.rejectedInFlight());
+
+        // the in flight claim is released only once the dealer completes it
+        Claim polled = queue.poll();
+        assertFalse(queue.offer(claim(0, 3, 4, 5)));
+        queue.complete(polled);
+        assertTrue(queue.offer(claim(0, 3, 4, 5)));
+    }
+
+    @Test
+    void poll_SameSlotsOfTwoPlayersServedByPressTime() {
+
+        ClaimQueue queue = createQueue("1", "0");
+        long now = System.nanoTime();
+        Claim late = claim(0, now - 1000, 0, 1, 2);
+        Claim early = claim(1, now - 2000, 2, 0, 1);
+        // the later press arrives first, and the conflict is still settled by press time
+        assertTrue(queue.offer(late));
+        assertTrue(queue.offer(early));
+        assertSame(early, queue.poll());
+        assertSame(late, queue.poll());
+    }
+
+    @Test
+    void offer_RejectsClaimsOverRateBudget() {
+
+        ClaimQueue queue = createQueue("2", "0.001");
+        assertTrue(queue.offer(claim(0, 0, 1, 2)));
+        assertFalse(queue.offer(claim(0, 3, 4, 5)));
+        assertEquals(1, queue.rejectedRate());
+    }
+
+    @Test
+    void clear_ReleasesInFlightClaims() {
+
+        ClaimQueue queue = createQueue("1", "0");
+        assertTrue(queue.offer(claim(0, 0, 1, 2)));
+        queue.clear();
+        assertTrue(queue.isEmpty());
+        assertTrue(queue.offer(claim(0, 0, 1, 2)));
+    }
+}
@@ -0,0 +1,88 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClaimTest {
+
+    Table table;
+    private Integer[] slotToCard;
+    private Integer[] cardToSlot;
+
+    @BeforeEach
+    void setUp() {
+
+        Properties properties = new Properties();
+        properties.put("Rows", "2");
+        properties.put("Columns", "2");
+        properties.put("TableDelaySeconds", "0");
+        properties.put("PlayerKeys1", "81,87,69,82");
+        properties.put("PlayerKeys2", "85,73,79,80");
+        TableTest.MockLogger logger = new TableTest.MockLogger();
+        Config config = new Config(logger, properties);
+        slotToCard = new Integer[config.tableSize];
+        cardToSlot = new Integer[config.deckSize];
+
+        Env env = new Env(logger, config, new TableTest.MockUserInterface(), new TableTest.MockUtil());
+        table = new Table(env, slotToCard, cardToSlot);
+        table.placeCard(3, 0);
+        table.placeCard(5, 1);
+        table.placeCard(7, 2);
+    }
+
+    private Claim claimFirstThreeSlots() {
+        return new Claim(null, new int[]{0, 1, 2}, new int[]{3, 5, 7}, table.epoch(), table.version(), 0);
+    }
+
+    @Test
+    void isCurrent_TableUnchanged() {
+
+        assertTrue(claimFirstThreeSlots().isCurrent(table));
+    }
+
+    @Test
+    void isCurrent_OtherSlotChanged() {
+
+        Claim claim = claimFirstThreeSlots();
+        table.placeCard(9, 3);
+        assertTrue(claim.isCurrent(table));
+    }
+
+    @Test
+    void isCurrent_ClaimedCardRemoved() {
+
+        Claim claim = claimFirstThreeSlots();
+        table.removeCard(1);
+        assertFalse(claim.isCurrent(table));
+    }
+
+    @Test
+    void isCurrent_ClaimedCardReplaced() {
+
+        Claim claim = claimFirstThreeSlots();
+        table.removeCard(1);
+        table.placeCard(9, 1);
+        assertFalse(claim.isCurrent(table));
+    }
+
+    @Test
+    void isCurrent_SameCardsDealtBackAfterReshuffle() {
+
+        Claim claim = claimFirstThreeSlots();
+        // a reshuffle that happens to deal the claimed cards back into the claimed slots
+        table.nextEpoch();
+        for (int slot = 0; slot < 3; slot++)
+            table.removeCard(slot);
+        table.placeCard(3, 0);
+        table.placeCard(5, 1);
+        table.placeCard(7, 2);
+        assertFalse(claim.isCurrent(table));
+    }
+}
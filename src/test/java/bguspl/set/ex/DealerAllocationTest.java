@@ -0,0 +1,126 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.ThreadLogger;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs a dealer against a human player whose keys are pressed by the test: the player claims the same three cards,
+ * which are not a set, over and over. Every claim is a full pass of the dealer loop (a verdict and a refill check),
+ * and once the game is running these passes must not allocate.
+ * Only the path of a claim that is not a set (a penalty) is measured: each point takes cards off the table for good,
+ * and the deck runs out after a couple dozen points, which is too few to tell the JIT warming up from a real
+ * allocation.
+ * The test suite mocks with subclasses (see mockito-extensions in the test resources): inline mocks would instrument
+ * Table and Dealer for the rest of the run, and the instrumentation allocates on every call.
+ */
+class DealerAllocationTest {
+
+    private static final int WARM_UP_CLAIMS = 2000;
+    private static final int MEASURED_CLAIMS = 4000;
+
+    /**
+     * The allocation allowed over all the measured claims, for the odd allocation outside the dealer loop (e.g. by
+     * the JIT deoptimizing a method). Allocating even a single array per claim exceeds it.
+     */
+    private static final long ALLOWED_BYTES = 16 * 1024;
+
+    private Env env;
+    private Table table;
+    private Dealer dealer;
+    private Player player;
+    private ThreadLogger dealerThread;
+
+    @BeforeEach
+    void setUp() {
+        Properties properties = new Properties();
+        properties.put("HumanPlayers", "1");
+        properties.put("ComputerPlayers", "0");
+        properties.put("TurnTimeoutSeconds", "600");
+        properties.put("PointFreezeSeconds", "0");
+        properties.put("PenaltyFreezeSeconds", "0");
+        properties.put("TableDelaySeconds", "0");
+        properties.put("ClaimArbitrationSeconds", "0");
+        properties.put("Hints", "False");
+        TableTest.MockLogger logger = new TableTest.MockLogger();
+        Config config = new Config(logger, properties);
+        env = new Env(logger, config, new TableTest.MockUserInterface(), new UtilImpl(config));
+        table = new Table(env);
+        Player[] players = new Player[1];
+        dealer = new Dealer(env, table, players);
+        player = players[0] = new Player(env, dealer, table, 0, true);
+        dealerThread = new ThreadLogger(dealer, "dealer", logger, env.threads);
+        dealerThread.start();
+        assumeTrue(env.threads.allocatedBytes(dealerThread) != -1, "the JVM does not measure thread allocations");
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        dealer.terminate();
+        synchronized (dealer.dealerLock) {
+            dealer.dealerLock.notifyAll();
+        }
+        dealerThread.join(10000);
+    }
+
+    /**
+     * @return - three slots whose cards are not a set.
+     */
+    private int[] slotsOfNoSet() {
+        for (int a = 0; a < table.slotToCard.length; a++)
+            for (int b = a + 1; b < table.slotToCard.length; b++)
+                for (int c = b + 1; c < table.slotToCard.length; c++)
+                    if (!env.util.testSet(new int[]{table.slotToCard[a], table.slotToCard[b], table.slotToCard[c]}))
+                        return new int[]{a, b, c};
+        throw new AssertionError("every three cards on the table are a set");
+    }
+
+    private void awaitClaims(long claims) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 60000;
+        while (env.metrics.claimLatency.count() < claims) {
+            if (System.currentTimeMillis() > deadline)
+                throw new AssertionError("the dealer checked " + env.metrics.claimLatency.count() + " claims only");
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Claims the same three slots until the dealer checked the given number of claims in total. After a penalty the
+     * player's tokens stay on the table, so pressing one of the slots twice (removing and placing the token again)
+     * makes a new claim.
+     */
+    private void claim(int[] slots, long claims) throws InterruptedException {
+        for (long claim = env.metrics.claimLatency.count(); claim < claims; claim++) {
+            player.keyPressed(slots[2]);
+            player.keyPressed(slots[2]);
+            awaitClaims(claim + 1);
+        }
+    }
+
+    @Test
+    void run_SteadyStateDoesNotAllocate() throws InterruptedException {
+
+        while (table.countCards() < env.config.tableSize || player.getPlayerThread() == null)
+            Thread.sleep(10);
+        int[] slots = slotsOfNoSet();
+        player.keyPressed(slots[0]);
+        player.keyPressed(slots[1]);
+        player.keyPressed(slots[2]);
+        awaitClaims(1);
+
+        claim(slots, WARM_UP_CLAIMS);
+        long before = env.threads.allocatedBytes(dealerThread);
+        claim(slots, WARM_UP_CLAIMS + MEASURED_CLAIMS);
+        long allocated = env.threads.allocatedBytes(dealerThread) - before;
+        assertTrue(allocated <= ALLOWED_BYTES, "the dealer allocated " + allocated + " bytes over " + MEASURED_CLAIMS + " claims");
+    }
+}
@@ -0,0 +1,87 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.GameMetrics;
+import bguspl.set.ThreadLogger;
+import bguspl.set.UtilImpl;
+import bguspl.set.VirtualClock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs a dealer on a virtual clock, so its 60 second turns time out as soon as the test advances the clock.
+ */
+class DealerTimeoutTest {
+
+    private Env env;
+    private VirtualClock clock;
+    private Table table;
+    private Dealer dealer;
+    private ThreadLogger dealerThread;
+
+    @BeforeEach
+    void setUp() {
+        Properties properties = new Properties();
+        properties.put("HumanPlayers", "1");
+        properties.put("ComputerPlayers", "0");
+        properties.put("TurnTimeoutSeconds", "60");
+        properties.put("TableDelaySeconds", "0");
+        properties.put("Hints", "False");
+        TableTest.MockLogger logger = new TableTest.MockLogger();
+        Config config = new Config(logger, properties);
+        clock = new VirtualClock();
+        env = new Env(logger, config, new TableTest.MockUserInterface(), new UtilImpl(config), null,
+                new GameMetrics(config.players, config.tableSize), clock);
+        table = new Table(env);
+        Player[] players = new Player[1];
+        dealer = new Dealer(env, table, players);
+        players[0] = new Player(env, dealer, table, 0, true);
+        dealerThread = new ThreadLogger(dealer, "dealer", logger, env.threads);
+        dealerThread.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        dealer.terminate();
+        synchronized (dealer.dealerLock) {
+            dealer.dealerLock.notifyAll();
+        }
+        dealerThread.join(10000);
+    }
+
+    /**
+     * Waits (in real time) until the dealer sleeps on the clock until the given time.
+     */
+    private void awaitDealerSleepingUntil(long deadline) throws InterruptedException {
+        long giveUp = System.currentTimeMillis() + 10000;
+        while (clock.nextDeadline() != deadline) {
+            if (System.currentTimeMillis() > giveUp)
+                throw new AssertionError("the dealer sleeps until " + clock.nextDeadline() + ", not " + deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    void timerLoop_TurnTimesOutOnTheClock() throws InterruptedException {
+
+        awaitDealerSleepingUntil(1000);
+        // the dealer wakes up every second of the turn
+        for (long second = 1; second < 60; second++) {
+            clock.advance(1000);
+            awaitDealerSleepingUntil((second + 1) * 1000);
+        }
+        assertEquals(0, env.metrics.getReshuffles());
+
+        clock.advance(1000);
+        // the new turn starts at 60 seconds
+        awaitDealerSleepingUntil(61000);
+        assertEquals(1, env.metrics.getReshuffles());
+        assertEquals(env.config.tableSize, table.countCards());
+    }
+}
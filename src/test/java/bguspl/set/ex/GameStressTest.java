@@ -0,0 +1,38 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameStressTest {
+
+    /**
+     * Enough games, players and reshuffles to catch the races the harness found so far: e.g. a point lost when the
+     * claimer woke up between the dealer removing its tokens and publishing the verdict failed about every other run,
+     * even on a single core.
+     */
+    private static final int PLAYERS = 24;
+    private static final int GAMES = 8;
+    private static final long MILLIS_PER_GAME = 2000;
+
+    @Test
+    void play_NoInvariantViolations() throws InterruptedException {
+
+        Properties properties = GameStress.defaults(PLAYERS);
+        properties.put("Seed", "42");
+        // short turns, so every game is reshuffled a few times
+        properties.put("TurnTimeoutSeconds", "0.2");
+        GameStress stress = new GameStress(Logger.getAnonymousLogger(), properties);
+        for (int game = 0; game < GAMES; game++)
+            stress.play(MILLIS_PER_GAME);
+
+        assertEquals(0, stress.violationCount(), stress.report());
+        assertTrue(stress.claims() > 0);
+        assertTrue(stress.checks() > 0);
+        assertTrue(stress.reshuffles() > 0, stress.report());
+    }
+}
@@ -0,0 +1,79 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeyChannelTest {
+
+    @Test
+    void poll_ReturnsPressesInOrder() {
+
+        KeyChannel channel = new KeyChannel(3);
+        assertTrue(channel.isEmpty());
+        assertTrue(channel.offer(4, 0, 40));
+        assertTrue(channel.offer(7, 1, 70));
+        assertEquals(2, channel.size());
+
+        assertEquals(4, channel.poll());
+        assertEquals(0, channel.polledEpoch());
+        assertEquals(40, channel.polledNanos());
+        assertEquals(7, channel.poll());
+        assertEquals(1, channel.polledEpoch());
+        assertEquals(70, channel.polledNanos());
+        assertEquals(-1, channel.poll());
+        assertTrue(channel.isEmpty());
+    }
+
+    @Test
+    void offer_RejectsWhenFull() {
+
+        KeyChannel channel = new KeyChannel(3);
+        for (int round = 0; round < 5; round++) {
+            assertTrue(channel.offer(1, 0, 0));
+            assertTrue(channel.offer(2, 0, 0));
+            assertTrue(channel.offer(3, 0, 0));
+            assertFalse(channel.offer(4, 0, 0));
+            channel.clear();
+            assertEquals(0, channel.size());
+        }
+    }
+
+    @Test
+    void offer_ConcurrentProducersLoseNothing() throws InterruptedException {
+
+        KeyChannel channel = new KeyChannel(3);
+        int producers = 4;
+        int pressesEach = 10_000;
+        Thread[] threads = new Thread[producers];
+        for (int i = 0; i < producers; i++) {
+            int slot = i;
+            threads[i] = new Thread(() -> {
+                for (int n = 0; n < pressesEach; n++)
+                    while (!channel.offer(slot, 0, n)) Thread.yield();
+            });
+            threads[i].start();
+        }
+
+        int[] received = new int[producers];
+        long[] last = {-1, -1, -1, -1};
+        for (int total = 0; total < producers * pressesEach; ) {
+            int slot = channel.poll();
+            if (slot == -1) {
+                Thread.yield();
+                continue;
+            }
+            // presses of the same producer arrive in order
+            assertTrue(channel.polledNanos() > last[slot]);
+            last[slot] = channel.polledNanos();
+            received[slot]++;
+            total++;
+        }
+        for (Thread thread : threads)
+            thread.join();
+        for (int count : received)
+            assertEquals(pressesEach, count);
+    }
+}
@@ -2,8 +2,10 @@ package bguspl.set.ex;
 
 import bguspl.set.Config;
 import bguspl.set.Env;
+import bguspl.set.GameMetrics;
 import bguspl.set.UserInterface;
 import bguspl.set.Util;
+import bguspl.set.VirtualClock;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -23,6 +25,8 @@ import static org.mockito.Mockito.when;
 class PlayerTest {
 
     Player player;
+    Env env;
+    VirtualClock clock;
     @Mock
     Util util;
     @Mock
@@ -42,7 +46,10 @@ class PlayerTest {
     @BeforeEach
     void setUp() {
         // purposely do not find the configuration files (use defaults here).
-        Env env = new Env(logger, new Config(logger, (String) null), ui, util);
+        Config config = new Config(logger, (String) null);
+        // the point freeze passes on a virtual clock, without sleeping
+        clock = new VirtualClock(0, true);
+        env = new Env(logger, config, ui, util, null, new GameMetrics(config.players, config.tableSize), clock);
         player = new Player(env, dealer, table, 0, false);
         assertInvariants();
     }
@@ -70,4 +77,20 @@ class PlayerTest {
         // check that ui.setScore was called with the player's id and the correct score
         verify(ui).setScore(eq(player.id), eq(expectedScore));
     }
+
+    @Test
+    void penalty() {
+
+        long frozenAt = clock.millis();
+        int expectedScore = player.score();
+
+        player.penalty();
+
+        // the freeze took the whole penalty time on the clock, and counted down to 0 on the ui
+        long penaltyFreezeMillis = env.config.timing().penaltyFreezeMillis;
+        assertEquals(penaltyFreezeMillis / 1000 * 1000, clock.millis() - frozenAt);
+        verify(ui).setFreeze(eq(player.id), eq(penaltyFreezeMillis));
+        verify(ui).setFreeze(eq(player.id), eq(penaltyFreezeMillis % 1000));
+        assertEquals(expectedScore, player.score());
+    }
 }
\ No newline at end of file
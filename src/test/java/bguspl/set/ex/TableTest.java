@@ -9,13 +9,18 @@ import org.junit.jupiter.api.Test;
 
 import java.util.List;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class TableTest {
 
     Table table;
+    private Env env;
+    private TokenUserInterface ui;
     private Integer[] slotToCard;
     private Integer[] cardToSlot;
 
@@ -35,7 +40,8 @@ class TableTest {
         slotToCard = new Integer[config.tableSize];
         cardToSlot = new Integer[config.deckSize];
 
-        Env env = new Env(logger, config, new MockUserInterface(), new MockUtil());
+        ui = new TokenUserInterface();
+        env = new Env(logger, config, ui, new MockUtil());
         table = new Table(env, slotToCard, cardToSlot);
     }
 
@@ -95,6 +101,102 @@ class TableTest {
         placeSomeCardsAndAssert();
     }
 
+    private void awaitTokens(int tokens) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (ui.tokens.size() != tokens && System.currentTimeMillis() < deadline)
+            Thread.sleep(1);
+        assertEquals(tokens, ui.tokens.size());
+    }
+
+    @Test
+    void nextEpoch_FirstPressCountsOnNewTable() throws InterruptedException {
+
+        fillAllSlots();
+        Player[] players = new Player[1];
+        Dealer dealer = new Dealer(env, table, players);
+        Player player = players[0] = new Player(env, dealer, table, 0, true);
+        Thread playerThread = new Thread(player, "player 0");
+        playerThread.start();
+        try {
+            player.keyPressed(0);
+            player.keyPressed(1);
+            awaitTokens(2);
+
+            // a reshuffle, as the dealer does it: the cards (and the tokens on them) go back and are dealt again
+            table.nextEpoch();
+            for (int slot = 0; slot < slotToCard.length; slot++) {
+                table.removeCard(slot);
+                table.placeCard(slot, slot);
+            }
+            awaitTokens(0);
+
+            player.keyPressed(2);
+            awaitTokens(1);
+            assertEquals(Set.of(TokenUserInterface.token(0, 2)), ui.tokens);
+        } finally {
+            player.terminate();
+            playerThread.join(5000);
+        }
+        assertEquals(1, player.numOfTokens);
+    }
+
+    @Test
+    void nextEpoch_OnlyPressesOfTheOldTableDropped() throws InterruptedException {
+
+        fillAllSlots();
+        Player[] players = new Player[1];
+        Dealer dealer = new Dealer(env, table, players);
+        Player player = players[0] = new Player(env, dealer, table, 0, true);
+
+        // both presses wait in the key queue until the player thread starts: one from before the reshuffle, one after
+        player.keyPressed(0);
+        table.nextEpoch();
+        for (int slot = 0; slot < slotToCard.length; slot++) {
+            table.removeCard(slot);
+            table.placeCard(slot, slot);
+        }
+        player.keyPressed(1);
+
+        Thread playerThread = new Thread(player, "player 0");
+        playerThread.start();
+        try {
+            awaitTokens(1);
+            assertEquals(Set.of(TokenUserInterface.token(0, 1)), ui.tokens);
+        } finally {
+            player.terminate();
+            playerThread.join(5000);
+        }
+        assertEquals(1, player.numOfTokens);
+    }
+
+    @Test
+    void placeToken_RejectedClaimTakesTokensOff() throws InterruptedException {
+
+        fillAllSlots();
+        Player[] players = new Player[1];
+        Dealer dealer = new Dealer(env, table, players);
+        Player player = players[0] = new Player(env, dealer, table, 0, true);
+        // with no dealer thread this claim stays in flight, so the player's own claim is rejected
+        assertTrue(dealer.playerQueue.offer(new Claim(player, new int[]{0, 1, 2}, new int[]{0, 1, 2}, table.epoch(), table.version(), 0)));
+
+        Thread playerThread = new Thread(player, "player 0");
+        playerThread.start();
+        try {
+            player.keyPressed(0);
+            player.keyPressed(1);
+            player.keyPressed(2);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (dealer.playerQueue.rejectedInFlight() == 0 && System.currentTimeMillis() < deadline)
+                Thread.sleep(1);
+            assertEquals(1, dealer.playerQueue.rejectedInFlight());
+            awaitTokens(0);
+        } finally {
+            player.terminate();
+            playerThread.join(5000);
+        }
+        assertEquals(0, player.numOfTokens);
+    }
+
     static class MockUserInterface implements UserInterface {
         @Override
         public void dispose() {}
@@ -107,6 +209,8 @@ class TableTest {
         @Override
         public void setElapsed(long millies) {}
         @Override
+        public void startTimer(long startMillis) {}
+        @Override
         public void setScore(int player, int score) {}
         @Override
         public void setFreeze(int player, long millies) {}
@@ -122,6 +226,37 @@ class TableTest {
         public void announceWinner(int[] players) {}
     };
 
+    /**
+     * A user interface that keeps the tokens on the table (player * 1000 + slot).
+     */
+    static class TokenUserInterface extends MockUserInterface {
+        final Set<Integer> tokens = ConcurrentHashMap.newKeySet();
+
+        static int token(int player, int slot) {
+            return player * 1000 + slot;
+        }
+
+        @Override
+        public void placeToken(int player, int slot) {
+            tokens.add(token(player, slot));
+        }
+
+        @Override
+        public void removeTokens() {
+            tokens.clear();
+        }
+
+        @Override
+        public void removeTokens(int slot) {
+            tokens.removeIf(token -> token % 1000 == slot);
+        }
+
+        @Override
+        public void removeToken(int player, int slot) {
+            tokens.remove(token(player, slot));
+        }
+    }
+
     static class MockUtil implements Util {
         @Override
         public int[] cardToFeatures(int card) {